@@ -138,6 +138,96 @@ class HttpBuildCacheServiceTest extends Specification {
         writer.writeCount == 2
     }
 
+    def "can stream artifact to cache"() {
+        def destFile = tempDir.file("cached.zip")
+        def content = "Data".bytes
+        server.expectPut("/cache/${key.hashCode}", destFile)
+
+        when:
+        def writer = writer(content)
+        def stored = cache.storeStreaming(key, writer)
+
+        then:
+        stored
+        destFile.bytes == content
+        writer.writeCount == 1
+    }
+
+    def "streamed store needs to be sent again when redirected with #redirectType"() {
+        def content = "Data".bytes
+        server.expectPutRedirected("/cache/${key.hashCode}", "/redirect/cache/${key.hashCode}", null, redirectType)
+
+        when:
+        def writer = writer(content)
+        def stored = cache.storeStreaming(key, writer)
+
+        then:
+        !stored
+        writer.writeCount == 1
+
+        where:
+        redirectType << [HttpServer.RedirectType.TEMP_307, HttpServer.RedirectType.PERMANENT]
+    }
+
+    def "streamed store can follow redirect when using expect continue"() {
+        given:
+        config.useExpectContinue = true
+
+        and:
+        def destFile = tempDir.file("cached.zip")
+        def content = "Data".bytes
+        server.expectPutRedirected("/cache/${key.hashCode}", "/redirect/cache/${key.hashCode}", null, HttpServer.RedirectType.TEMP_307)
+        server.expectPut("/redirect/cache/${key.hashCode}", destFile)
+
+        when:
+        def writer = writer(content)
+        def stored = cache.storeStreaming(key, writer)
+
+        then:
+        stored
+        destFile.bytes == content
+        writer.writeCount == 1
+    }
+
+    def "can stream artifact to cache with preemptive authentication"() {
+        config.credentials.username = 'user'
+        config.credentials.password = 'password'
+        server.authenticationScheme = AuthScheme.BASIC
+
+        def destFile = tempDir.file("cached.zip")
+        server.expectPut("/cache/${key.hashCode}", config.credentials.username, config.credentials.password, destFile)
+
+        when:
+        def content = "Data".bytes
+        def writer = writer(content)
+        def stored = cache.storeStreaming(key, writer)
+
+        then:
+        stored
+        destFile.bytes == content
+        writer.writeCount == 1
+        server.authenticationAttempts == ['Basic'] as Set
+    }
+
+    def "streamed store reports authentication challenge like a regular store"() {
+        server.expect("/cache/${key.hashCode}", false, ['PUT'], new HttpServer.ActionSupport("challenge for credentials") {
+            @Override
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                response.setHeader(HttpHeaders.WWW_AUTHENTICATE, 'Basic realm="build cache"')
+                response.setStatus(HttpStatus.SC_UNAUTHORIZED)
+            }
+        })
+
+        when:
+        def writer = writer("Data".bytes)
+        cache.storeStreaming(key, writer)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message.contains("response status 401")
+        writer.writeCount == 1
+    }
+
     def "can load artifact from cache"() {
         def srcFile = tempDir.file("cached.zip")
         srcFile.text = "Data"
@@ -21,6 +21,7 @@
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.NonRepeatableRequestException;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.AbstractHttpEntity;
@@ -30,7 +31,7 @@
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.StreamingBuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.HttpClientResponse;
@@ -43,11 +44,14 @@
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
+ *
+ * <p>Entries can be stored while they are written, using chunked transfer encoding.</p>
  */
-public class HttpBuildCacheService implements BuildCacheService {
+public class HttpBuildCacheService implements StreamingBuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
     static final String BUILD_CACHE_CONTENT_TYPE = "application/vnd.gradle.build-cache-artifact.v1";
 
@@ -62,6 +66,12 @@ public class HttpBuildCacheService implements BuildCacheService {
         511 // network authentication required
     );
 
+    private static final Set<Integer> REDIRECT_HTTP_CODES = ImmutableSet.of(
+        HttpStatus.SC_MOVED_PERMANENTLY, HttpStatus.SC_MOVED_TEMPORARILY, HttpStatus.SC_SEE_OTHER,
+        HttpStatus.SC_TEMPORARY_REDIRECT,
+        308 // permanent redirect
+    );
+
     private final URI root;
     private final HttpClientHelper httpClientHelper;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
@@ -106,23 +116,52 @@ public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws Buil
 
     @Override
     public void store(BuildCacheKey key, final BuildCacheEntryWriter output) throws BuildCacheException {
-        final URI uri = root.resolve(key.getHashCode());
-        HttpPut httpPut = new HttpPut(uri);
-        if (useExpectContinue) {
-            httpPut.setHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        try {
+            put(key, new AbstractHttpEntity() {
+                @Override
+                public boolean isRepeatable() {
+                    return true;
+                }
+
+                @Override
+                public long getContentLength() {
+                    return output.getSize();
+                }
+
+                @Override
+                public InputStream getContent() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void writeTo(OutputStream outstream) throws IOException {
+                    output.writeTo(outstream);
+                }
+
+                @Override
+                public boolean isStreaming() {
+                    return false;
+                }
+            });
+        } catch (ClientProtocolException e) {
+            throw wrap(e.getCause());
+        } catch (IOException e) {
+            throw wrap(e);
         }
-        httpPut.addHeader(HttpHeaders.CONTENT_TYPE, BUILD_CACHE_CONTENT_TYPE);
-        requestCustomizer.customize(httpPut);
+    }
 
-        httpPut.setEntity(new AbstractHttpEntity() {
+    @Override
+    public boolean storeStreaming(BuildCacheKey key, BuildCacheEntryWriter output) throws BuildCacheException {
+        AtomicBoolean written = new AtomicBoolean();
+        AbstractHttpEntity entity = new AbstractHttpEntity() {
             @Override
             public boolean isRepeatable() {
-                return true;
+                return false;
             }
 
             @Override
             public long getContentLength() {
-                return output.getSize();
+                return -1;
             }
 
             @Override
@@ -132,6 +171,9 @@ public InputStream getContent() {
 
             @Override
             public void writeTo(OutputStream outstream) throws IOException {
+                if (!written.compareAndSet(false, true)) {
+                    throw new EntityAlreadyWrittenException();
+                }
                 output.writeTo(outstream);
             }
 
@@ -139,7 +181,43 @@ public void writeTo(OutputStream outstream) throws IOException {
             public boolean isStreaming() {
                 return false;
             }
-        });
+        };
+        entity.setChunked(true);
+        try {
+            put(key, entity);
+            return true;
+        } catch (IOException e) {
+            if (needsToBeSentAgain(e)) {
+                LOGGER.debug("Could not stream entry {}, as it needs to be sent again", key.getDisplayName());
+                return false;
+            }
+            throw wrap(e instanceof ClientProtocolException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Whether the request failed because its entity had to be sent again, e.g. to follow a redirect or to authenticate.
+     * The HTTP client may wrap the failure, e.g. when it happens after following a redirect.
+     */
+    private static boolean needsToBeSentAgain(IOException e) {
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            if (current instanceof EntityAlreadyWrittenException || current instanceof NonRepeatableRequestException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(BuildCacheKey key, AbstractHttpEntity entity) throws IOException {
+        final URI uri = root.resolve(key.getHashCode());
+        HttpPut httpPut = new HttpPut(uri);
+        if (useExpectContinue) {
+            httpPut.setHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        }
+        httpPut.addHeader(HttpHeaders.CONTENT_TYPE, BUILD_CACHE_CONTENT_TYPE);
+        requestCustomizer.customize(httpPut);
+        httpPut.setEntity(entity);
+
         try (HttpClientResponse response = httpClientHelper.performHttpRequest(httpPut)) {
             StatusLine statusLine = response.getStatusLine();
             if (LOGGER.isDebugEnabled()) {
@@ -147,13 +225,13 @@ public boolean isStreaming() {
             }
             int statusCode = statusLine.getStatusCode();
             if (!isHttpSuccess(statusCode)) {
+                if (REDIRECT_HTTP_CODES.contains(statusCode) && !entity.isRepeatable()) {
+                    // The client does not follow redirects when the entity has already been sent
+                    throw new EntityAlreadyWrittenException();
+                }
                 String defaultMessage = String.format("Storing entry at '%s' response status %d: %s", safeUri(uri), statusCode, statusLine.getReasonPhrase());
                 throwHttpStatusCodeException(statusCode, defaultMessage);
             }
-        } catch (ClientProtocolException e) {
-            throw wrap(e.getCause());
-        } catch (IOException e) {
-            throw wrap(e);
         }
     }
 
@@ -195,4 +273,10 @@ private static URI safeUri(URI uri) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
+
+    private static class EntityAlreadyWrittenException extends IOException {
+        EntityAlreadyWrittenException() {
+            super("Streamed entry cannot be sent more than once");
+        }
+    }
 }
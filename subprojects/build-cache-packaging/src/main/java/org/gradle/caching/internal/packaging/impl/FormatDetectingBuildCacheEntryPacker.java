@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Packs entries with a configured packer, and unpacks both gzip and LZ4 compressed entries, regardless of the format used for packing.
+ */
+public class FormatDetectingBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private final BuildCacheEntryPacker packer;
+    private final GZipBuildCacheEntryPacker gzipPacker;
+    private final Lz4BuildCacheEntryPacker lz4Packer;
+
+    public FormatDetectingBuildCacheEntryPacker(BuildCacheEntryPacker packer, GZipBuildCacheEntryPacker gzipPacker, Lz4BuildCacheEntryPacker lz4Packer) {
+        this.packer = packer;
+        this.gzipPacker = gzipPacker;
+        this.lz4Packer = lz4Packer;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        return packer.pack(entity, snapshots, output, writeOrigin);
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+        bufferedInput.mark(Lz4BuildCacheEntryPacker.getFormatMarkerLength());
+        boolean lz4 = Lz4BuildCacheEntryPacker.readFormatMarker(bufferedInput);
+        bufferedInput.reset();
+        if (lz4) {
+            return lz4Packer.unpack(entity, bufferedInput, readOrigin);
+        }
+        return gzipPacker.unpack(entity, bufferedInput, readOrigin);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses single blocks in the LZ4 block format.
+ *
+ * <p>The compressor uses the greedy single-probe hash table approach of the reference LZ4 fast compressor.
+ * Its output can be decoded by any LZ4 block decoder.</p>
+ */
+class Lz4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 14;
+    private static final int RUN_MASK = 15;
+    private static final int SKIP_TRIGGER = 6;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code source} into {@code target}, which must have room for at least {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return the number of bytes written to {@code target}.
+     */
+    int compress(byte[] source, int length, byte[] target) {
+        int anchor = 0;
+        int out = 0;
+        if (length > MF_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            int matchStartLimit = length - MF_LIMIT;
+            int matchEndLimit = length - LAST_LITERALS;
+            int pos = 0;
+            while (pos < matchStartLimit) {
+                int sequence = readInt(source, pos);
+                int hash = hash(sequence);
+                int ref = hashTable[hash];
+                hashTable[hash] = pos;
+                if (ref < 0 || pos - ref > MAX_OFFSET || readInt(source, ref) != sequence) {
+                    // Move faster through data that does not compress well
+                    pos += 1 + ((pos - anchor) >>> SKIP_TRIGGER);
+                    continue;
+                }
+                while (pos > anchor && ref > 0 && source[pos - 1] == source[ref - 1]) {
+                    pos--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (pos + matchLength < matchEndLimit && source[pos + matchLength] == source[ref + matchLength]) {
+                    matchLength++;
+                }
+                out = writeSequence(source, anchor, pos - anchor, pos - ref, matchLength - MIN_MATCH, target, out);
+                pos += matchLength;
+                anchor = pos;
+                if (pos - 2 < matchStartLimit) {
+                    hashTable[hash(readInt(source, pos - 2))] = pos - 2;
+                }
+            }
+        }
+        return writeLastLiterals(source, anchor, length - anchor, target, out);
+    }
+
+    /**
+     * Decompresses the LZ4 block in the first {@code length} bytes of {@code source} into {@code target}.
+     *
+     * @return the number of bytes written to {@code target}.
+     */
+    static int decompress(byte[] source, int length, byte[] target) throws IOException {
+        int in = 0;
+        int out = 0;
+        while (true) {
+            if (in >= length) {
+                throw corrupted();
+            }
+            int token = source[in++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int value;
+                do {
+                    if (in >= length) {
+                        throw corrupted();
+                    }
+                    value = source[in++] & 0xFF;
+                    literalLength += value;
+                } while (value == 255);
+            }
+            if (literalLength > length - in || literalLength > target.length - out) {
+                throw corrupted();
+            }
+            System.arraycopy(source, in, target, out, literalLength);
+            in += literalLength;
+            out += literalLength;
+            if (in == length) {
+                // The last sequence of a block only contains literals
+                return out;
+            }
+
+            if (in + 2 > length) {
+                throw corrupted();
+            }
+            int offset = (source[in] & 0xFF) | ((source[in + 1] & 0xFF) << 8);
+            in += 2;
+            if (offset == 0 || offset > out) {
+                throw corrupted();
+            }
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int value;
+                do {
+                    if (in >= length) {
+                        throw corrupted();
+                    }
+                    value = source[in++] & 0xFF;
+                    matchLength += value;
+                } while (value == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > target.length - out) {
+                throw corrupted();
+            }
+            int ref = out - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(target, ref, target, out, matchLength);
+            } else {
+                // Overlapping match, repeats the last offset bytes
+                for (int i = 0; i < matchLength; i++) {
+                    target[out + i] = target[ref + i];
+                }
+            }
+            out += matchLength;
+        }
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literalLength, int offset, int matchLength, byte[] target, int out) {
+        int tokenPos = out++;
+        int token = (Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchLength, RUN_MASK);
+        target[tokenPos] = (byte) token;
+        if (literalLength >= RUN_MASK) {
+            out = writeLength(literalLength - RUN_MASK, target, out);
+        }
+        System.arraycopy(source, literalStart, target, out, literalLength);
+        out += literalLength;
+        target[out++] = (byte) offset;
+        target[out++] = (byte) (offset >>> 8);
+        if (matchLength >= RUN_MASK) {
+            out = writeLength(matchLength - RUN_MASK, target, out);
+        }
+        return out;
+    }
+
+    private static int writeLastLiterals(byte[] source, int literalStart, int literalLength, byte[] target, int out) {
+        target[out++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+        if (literalLength >= RUN_MASK) {
+            out = writeLength(literalLength - RUN_MASK, target, out);
+        }
+        System.arraycopy(source, literalStart, target, out, literalLength);
+        return out + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] target, int out) {
+        while (length >= 255) {
+            target[out++] = (byte) 255;
+            length -= 255;
+        }
+        target[out++] = (byte) length;
+        return out;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+            | ((bytes[offset + 1] & 0xFF) << 8)
+            | ((bytes[offset + 2] & 0xFF) << 16)
+            | ((bytes[offset + 3] & 0xFF) << 24);
+    }
+
+    private static IOException corrupted() {
+        return new IOException("Corrupted LZ4 block");
+    }
+}
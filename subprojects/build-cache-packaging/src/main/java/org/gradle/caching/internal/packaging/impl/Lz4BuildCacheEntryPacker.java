@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compresses entries with LZ4, which is much faster to pack and unpack than gzip at the cost of a somewhat lower compression ratio.
+ *
+ * <p>Entries start with a format marker, so that they can be told apart from gzip compressed entries,
+ * see {@link FormatDetectingBuildCacheEntryPacker}.</p>
+ */
+public class Lz4BuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private static final byte[] FORMAT_MARKER = {'G', 'L', 'Z', '4'};
+
+    private final BuildCacheEntryPacker delegate;
+
+    public Lz4BuildCacheEntryPacker(BuildCacheEntryPacker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        output.write(FORMAT_MARKER);
+        try (Lz4OutputStream lz4Output = new Lz4OutputStream(output)) {
+            return delegate.pack(entity, snapshots, lz4Output, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        if (!readFormatMarker(input)) {
+            throw new IOException("Build cache entry is not LZ4 compressed");
+        }
+        try (Lz4InputStream lz4Input = new Lz4InputStream(input)) {
+            return delegate.unpack(entity, lz4Input, readOrigin);
+        }
+    }
+
+    /**
+     * Reads the format marker from the start of the given stream, and returns whether it marks an LZ4 compressed entry.
+     */
+    static boolean readFormatMarker(InputStream input) throws IOException {
+        byte[] marker = new byte[FORMAT_MARKER.length];
+        int count = 0;
+        while (count < marker.length) {
+            int read = input.read(marker, count, marker.length - count);
+            if (read < 0) {
+                return false;
+            }
+            count += read;
+        }
+        return Arrays.equals(marker, FORMAT_MARKER);
+    }
+
+    static int getFormatMarkerLength() {
+        return FORMAT_MARKER.length;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads data written by {@link Lz4OutputStream}.
+ */
+public class Lz4InputStream extends FilterInputStream {
+    private final byte[] buffer = new byte[Lz4OutputStream.BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(Lz4OutputStream.BLOCK_SIZE)];
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    public Lz4InputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureAvailable()) {
+            int count = (int) Math.min(n - skipped, limit - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == limit) {
+            if (endOfStream) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int header = readHeader();
+        position = 0;
+        limit = 0;
+        if (header == 0) {
+            endOfStream = true;
+            return;
+        }
+        if ((header & Lz4OutputStream.UNCOMPRESSED_FLAG) != 0) {
+            int length = header & ~Lz4OutputStream.UNCOMPRESSED_FLAG;
+            if (length > buffer.length) {
+                throw new IOException("Corrupted LZ4 stream");
+            }
+            ByteStreams.readFully(in, buffer, 0, length);
+            limit = length;
+        } else {
+            if (header > compressed.length) {
+                throw new IOException("Corrupted LZ4 stream");
+            }
+            ByteStreams.readFully(in, compressed, 0, header);
+            limit = Lz4BlockCodec.decompress(compressed, header, buffer);
+        }
+    }
+
+    private int readHeader() throws IOException {
+        int header = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of LZ4 stream");
+            }
+            header = (header << 8) | b;
+        }
+        return header;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes data as a sequence of LZ4 compressed blocks.
+ *
+ * <p>Each block is preceded by a 4-byte header holding the length of the block. Blocks that do not compress are stored as-is,
+ * which is marked by the highest bit of the header. The stream is terminated by an empty header.
+ * Like {@link java.util.zip.GZIPOutputStream}, flushing this stream does not flush a partially filled block.</p>
+ */
+public class Lz4OutputStream extends FilterOutputStream {
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int UNCOMPRESSED_FLAG = 0x80000000;
+
+    private final Lz4BlockCodec codec = new Lz4BlockCodec();
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+    private int count;
+    private boolean finished;
+
+    public Lz4OutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int chunk = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, buffer, count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Writes any buffered data and the end of stream marker, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (count > 0) {
+            writeBlock();
+        }
+        writeHeader(0);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int compressedLength = codec.compress(buffer, count, compressed);
+        if (compressedLength < count) {
+            writeHeader(compressedLength);
+            out.write(compressed, 0, compressedLength);
+        } else {
+            writeHeader(count | UNCOMPRESSED_FLAG);
+            out.write(buffer, 0, count);
+        }
+        count = 0;
+    }
+
+    private void writeHeader(int header) throws IOException {
+        out.write(header >>> 24);
+        out.write(header >>> 16);
+        out.write(header >>> 8);
+        out.write(header);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.internal.snapshot.FileSystemSnapshot
+import spock.lang.Specification
+
+class Lz4BuildCacheEntryPackerTest extends Specification {
+    def entity = Stub(CacheableEntity)
+    def writeOrigin = Stub(OriginWriter)
+    def readOrigin = Stub(OriginReader)
+    def delegate = new CopyingPacker()
+    def gzipPacker = new GZipBuildCacheEntryPacker(delegate)
+    def lz4Packer = new Lz4BuildCacheEntryPacker(delegate)
+
+    def "streams round-trip #description"() {
+        def output = new ByteArrayOutputStream()
+
+        when:
+        new Lz4OutputStream(output).withCloseable { it.write(data) }
+        def result = new Lz4InputStream(new ByteArrayInputStream(output.toByteArray())).bytes
+
+        then:
+        result == data
+
+        where:
+        description             | data
+        "empty data"            | new byte[0]
+        "short data"            | "hello".bytes
+        "compressible data"     | ("the quick brown fox jumps over the lazy dog " * 10000).bytes
+        "incompressible data"   | randomBytes(3 * Lz4OutputStream.BLOCK_SIZE + 17)
+    }
+
+    def "compresses repetitive data"() {
+        def data = ("abc" * 100000).bytes
+        def output = new ByteArrayOutputStream()
+
+        when:
+        new Lz4OutputStream(output).withCloseable { it.write(data) }
+
+        then:
+        output.size() < data.length / 100
+    }
+
+    def "fails on truncated stream"() {
+        def output = new ByteArrayOutputStream()
+        new Lz4OutputStream(output).withCloseable { it.write(("abc" * 1000).bytes) }
+        def truncated = Arrays.copyOf(output.toByteArray(), output.size() - 4)
+
+        when:
+        new Lz4InputStream(new ByteArrayInputStream(truncated)).bytes
+
+        then:
+        thrown(EOFException)
+    }
+
+    def "unpacks entries packed with #packedWith when packing with #packingWith"() {
+        def output = new ByteArrayOutputStream()
+        def data = ("some cache entry content " * 1000).bytes
+        def packers = [gzip: gzipPacker, lz4: lz4Packer]
+        def packer = new FormatDetectingBuildCacheEntryPacker(packers[packingWith], gzipPacker, lz4Packer)
+
+        when:
+        delegate.content = data
+        packers[packedWith].pack(entity, [:], output, writeOrigin)
+        delegate.content = null
+        packer.unpack(entity, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        delegate.content == data
+
+        where:
+        packedWith | packingWith
+        "gzip"     | "gzip"
+        "gzip"     | "lz4"
+        "lz4"      | "gzip"
+        "lz4"      | "lz4"
+    }
+
+    def "lz4 packer rejects entries without format marker"() {
+        def output = new ByteArrayOutputStream()
+        delegate.content = "content".bytes
+        gzipPacker.pack(entity, [:], output, writeOrigin)
+
+        when:
+        lz4Packer.unpack(entity, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        def ex = thrown(IOException)
+        ex.message == "Build cache entry is not LZ4 compressed"
+    }
+
+    private static byte[] randomBytes(int length) {
+        def bytes = new byte[length]
+        new Random(1234L).nextBytes(bytes)
+        return bytes
+    }
+
+    private static class CopyingPacker implements BuildCacheEntryPacker {
+        byte[] content
+
+        @Override
+        PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) {
+            output.write(content)
+            return new PackResult(1)
+        }
+
+        @Override
+        UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) {
+            content = input.bytes
+            return new UnpackResult(null, 1, [:])
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+
+/**
+ * A build cache service that can store an entry while it is being written, without knowing its size up front.
+ */
+public interface StreamingBuildCacheService extends BuildCacheService {
+
+    /**
+     * Stores the entry written by the given writer, sending the content to the cache as it is written.
+     *
+     * The writer writes its content at most once, and its {@link BuildCacheEntryWriter#getSize()} is not known.
+     *
+     * @return {@code true} if the entry was stored, or {@code false} if storing the entry would require writing it again, for example to follow a redirect.
+     * The caller should then store the entry via {@link #store(BuildCacheKey, BuildCacheEntryWriter)} instead.
+     */
+    boolean storeStreaming(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException;
+}
@@ -20,7 +20,9 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.io.Closer;
+import com.google.common.io.CountingOutputStream;
 import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.temp.TemporaryFileProvider;
 import org.gradle.caching.BuildCacheKey;
@@ -39,6 +41,7 @@
 import org.gradle.caching.internal.controller.service.NullRemoteBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.NullLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringRemoteBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.StreamingStoreTarget;
 import org.gradle.caching.internal.origin.OriginMetadata;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
@@ -64,6 +67,7 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
@@ -79,6 +83,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     private final BuildCacheTempFileStore tmp;
     private final boolean emitDebugLogging;
+    private final boolean streamRemoteStores;
     private final PackOperationExecutor packExecutor;
 
     private boolean closed;
@@ -90,12 +95,14 @@ public DefaultBuildCacheController(
         boolean logStackTraces,
         boolean emitDebugLogging,
         boolean disableRemoteOnError,
+        boolean streamRemoteStores,
         FileSystemAccess fileSystemAccess,
         BuildCacheEntryPacker packer,
         OriginMetadataFactory originMetadataFactory,
         StringInterner stringInterner
     ) {
         this.emitDebugLogging = emitDebugLogging;
+        this.streamRemoteStores = streamRemoteStores;
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush());
         this.remote = toRemoteHandle(config.getRemote(), config.isRemotePush(), buildOperationExecutor, logStackTraces, disableRemoteOnError);
         this.tmp = toTempFileStore(config.getLocal(), temporaryFileProvider);
@@ -160,6 +167,13 @@ public void store(BuildCacheKey key, CacheableEntity entity, Map<String, FileSys
         if (!local.canStore() && !remote.canStore()) {
             return;
         }
+        if (!local.canStore() && streamRemoteStores) {
+            // Nothing needs the packed entry as a file, so pack it directly into the remote cache
+            StreamingStoreTarget storeTarget = new StreamingStoreTarget(key, tmp, output -> packExecutor.pack(output, key, entity, snapshots, executionTime));
+            if (remote.maybeStoreStreaming(key, storeTarget)) {
+                return;
+            }
+        }
         tmp.withTempFile(key, file -> {
             packExecutor.pack(file, key, entity, snapshots, executionTime);
             remote.maybeStore(key, file);
@@ -261,14 +275,21 @@ private ImmutableSortedMap<String, FileSystemSnapshot> snapshotUnpackedData(Cach
 
         @VisibleForTesting
         void pack(File file, BuildCacheKey key, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime) {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
+                pack(fileOutputStream, key, entity, snapshots, executionTime);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void pack(OutputStream output, BuildCacheKey key, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime) {
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) throws IOException {
-                    try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-                        BuildCacheEntryPacker.PackResult packResult = packer.pack(entity, snapshots, fileOutputStream, originMetadataFactory.createWriter(entity, executionTime));
-                        long entryCount = packResult.getEntries();
-                        context.setResult(new PackOperationResult(entryCount, file.length()));
-                    }
+                    CountingOutputStream countingOutput = new CountingOutputStream(output);
+                    BuildCacheEntryPacker.PackResult packResult = packer.pack(entity, snapshots, countingOutput, originMetadataFactory.createWriter(entity, executionTime));
+                    long entryCount = packResult.getEntries();
+                    context.setResult(new PackOperationResult(entryCount, countingOutput.getCount()));
                 }
 
                 @Override
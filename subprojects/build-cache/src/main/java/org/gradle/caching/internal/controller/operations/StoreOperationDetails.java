@@ -19,12 +19,21 @@
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.internal.operations.BuildCacheRemoteStoreBuildOperationType;
 
+import java.util.function.LongSupplier;
+
 public class StoreOperationDetails implements BuildCacheRemoteStoreBuildOperationType.Details {
 
     private final BuildCacheKey cacheKey;
-    private final long archiveSize;
+    private final LongSupplier archiveSize;
 
     public StoreOperationDetails(BuildCacheKey cacheKey, long archiveSize) {
+        this(cacheKey, () -> archiveSize);
+    }
+
+    /**
+     * For entries that are streamed to the cache, the size is only known once the entry has been written.
+     */
+    public StoreOperationDetails(BuildCacheKey cacheKey, LongSupplier archiveSize) {
         this.cacheKey = cacheKey;
         this.archiveSize = archiveSize;
     }
@@ -36,6 +45,6 @@ public String getCacheKey() {
 
     @Override
     public long getArchiveSize() {
-        return archiveSize;
+        return archiveSize.getAsLong();
     }
 }
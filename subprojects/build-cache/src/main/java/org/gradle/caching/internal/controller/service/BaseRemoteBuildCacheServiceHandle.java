@@ -19,12 +19,14 @@
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.StreamingBuildCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 public class BaseRemoteBuildCacheServiceHandle implements RemoteBuildCacheServiceHandle {
@@ -39,6 +41,8 @@ public class BaseRemoteBuildCacheServiceHandle implements RemoteBuildCacheServic
     private final boolean disableOnError;
 
     private boolean disabled;
+    private boolean streamedStoresTaken;
+    private boolean streamedStoresRejected;
 
     public BaseRemoteBuildCacheServiceHandle(
         BuildCacheService service,
@@ -121,6 +125,50 @@ protected void storeInner(String description, BuildCacheKey key, StoreTarget sto
         service.store(key, storeTarget);
     }
 
+    @Override
+    public final boolean maybeStoreStreaming(BuildCacheKey key, StreamingStoreTarget storeTarget) {
+        if (!canStore() || !(service instanceof StreamingBuildCacheService) || streamedStoresRejected) {
+            return false;
+        }
+        String description = "Store entry " + key.getDisplayName() + " in " + role.getDisplayName() + " build cache";
+        LOGGER.debug(description);
+        try {
+            storeStreamingInner(description, key, storeTarget);
+        } catch (Exception e) {
+            RuntimeException writeFailure = storeTarget.getWriteFailure();
+            if (writeFailure != null) {
+                // Producing the entry failed, which is not a problem of the build cache
+                throw writeFailure;
+            }
+            failure("store", "in", key, e);
+        }
+        return true;
+    }
+
+    protected boolean storeStreamingInner(String description, BuildCacheKey key, StreamingStoreTarget storeTarget) {
+        if (streamedStoresTaken) {
+            return storeStreamingOrStaged(key, storeTarget);
+        }
+        // Until the service has taken a streamed entry, keep a copy, so the entry is not written again when it has to be stored from a file
+        return storeTarget.keepingCopy(() -> storeStreamingOrStaged(key, storeTarget));
+    }
+
+    private boolean storeStreamingOrStaged(BuildCacheKey key, StreamingStoreTarget storeTarget) {
+        if (((StreamingBuildCacheService) service).storeStreaming(key, storeTarget)) {
+            streamedStoresTaken = true;
+            return true;
+        }
+        // The service needs the entry more than once, e.g. to follow a redirect, so store this and later entries from a file instead
+        streamedStoresRejected = true;
+        AtomicBoolean stored = new AtomicBoolean();
+        storeTarget.withStagedFile(file -> {
+            StoreTarget fileStoreTarget = new StoreTarget(file);
+            service.store(key, fileStoreTarget);
+            stored.set(fileStoreTarget.isStored());
+        });
+        return stored.get();
+    }
+
     private void failure(String verb, String preposition, BuildCacheKey key, Throwable e) {
         if (disableOnError) {
             disabled = true;
@@ -54,6 +54,11 @@ public boolean maybeStore(BuildCacheKey key, File file) {
         return false;
     }
 
+    @Override
+    public boolean maybeStoreStreaming(BuildCacheKey key, StreamingStoreTarget storeTarget) {
+        return false;
+    }
+
     @Override
     public void close() {
 
@@ -26,6 +26,7 @@
 import org.gradle.caching.internal.controller.operations.StoreOperationResult;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 
@@ -81,6 +82,25 @@ public BuildOperationDescriptor.Builder description() {
         });
     }
 
+    @Override
+    protected boolean storeStreamingInner(final String description, final BuildCacheKey key, final StreamingStoreTarget storeTarget) {
+        return buildOperationExecutor.call(new CallableBuildOperation<Boolean>() {
+            @Override
+            public Boolean call(BuildOperationContext context) {
+                boolean stored = OpFiringRemoteBuildCacheServiceHandle.super.storeStreamingInner(description, key, storeTarget);
+                context.setResult(stored ? StoreOperationResult.STORED : StoreOperationResult.NOT_STORED);
+                return stored;
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName(description)
+                    .details(new StoreOperationDetails(key, storeTarget::getSize))
+                    .progressDisplayName("Uploading to remote build cache");
+            }
+        });
+    }
+
     private class OpFiringEntryReader implements BuildCacheEntryReader {
 
         private final BuildCacheEntryReader delegate;
@@ -52,6 +52,17 @@ public interface RemoteBuildCacheServiceHandle extends Closeable {
      */
     boolean maybeStore(BuildCacheKey key, File file);
 
+    /**
+     * Stores the entry to the cache while it is being written, when the service supports it.
+     *
+     * Returns false if canStore() returns false, if the service does not support streaming, or if it could not take a streamed entry before.
+     * The entry should then be stored via a file instead.
+     * Otherwise returns true, after storing the entry or handling the failure to store it.
+     * When the service cannot take the streamed entry, the entry is stored via a temp file as part of the same store operation.
+     * Until the service has taken a streamed entry, a copy is kept in that temp file while streaming, so the entry is only written once.
+     */
+    boolean maybeStoreStreaming(BuildCacheKey key, StreamingStoreTarget storeTarget);
+
     @Override
     void close();
 }
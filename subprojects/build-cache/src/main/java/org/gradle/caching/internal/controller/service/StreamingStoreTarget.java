@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import com.google.common.io.Closer;
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.local.internal.BuildCacheTempFileStore;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Writes an entry directly to the output of a {@link org.gradle.caching.internal.StreamingBuildCacheService}, without staging it in a file.
+ *
+ * Failures to produce the content are kept apart from failures of the service, so they can be reported like when packing to a file.
+ * When the service cannot take the streamed entry, the entry can be staged in a temp file instead.
+ * A copy of the entry can be kept in that file while it is streamed, so the entry does not need to be written again.
+ */
+public class StreamingStoreTarget implements BuildCacheEntryWriter {
+
+    private final BuildCacheKey key;
+    private final BuildCacheTempFileStore tmp;
+    private final Consumer<OutputStream> contentWriter;
+    private boolean stored;
+    private long size;
+    private File copy;
+    private boolean copied;
+    private RuntimeException writeFailure;
+
+    public StreamingStoreTarget(BuildCacheKey key, BuildCacheTempFileStore tmp, Consumer<OutputStream> contentWriter) {
+        this.key = key;
+        this.tmp = tmp;
+        this.contentWriter = contentWriter;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        if (stored) {
+            throw new IllegalStateException("Streamed entry cannot be written more than once.");
+        }
+        stored = true;
+        Closer closer = Closer.create();
+        OutputStream copyOutput = null;
+        if (copy != null) {
+            try {
+                copyOutput = closer.register(new FileOutputStream(copy));
+            } catch (IOException e) {
+                writeFailure = new UncheckedIOException(e);
+                throw writeFailure;
+            }
+        }
+        TransportOutputStream transportOutput = closer.register(new TransportOutputStream(output, copyOutput));
+        try {
+            contentWriter.accept(transportOutput);
+            size = transportOutput.count;
+            copied = copyOutput != null;
+        } catch (RuntimeException e) {
+            IOException transportFailure = transportOutput.failure;
+            if (transportFailure != null) {
+                // The content could not be sent, which is a failure of the service
+                throw closer.rethrow(transportFailure);
+            }
+            writeFailure = e;
+            throw closer.rethrow(e);
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Runs the given store, keeping a copy of the streamed entry in a temp file until the store completes.
+     */
+    public boolean keepingCopy(BooleanSupplier store) {
+        AtomicBoolean stored = new AtomicBoolean();
+        tmp.withTempFile(key, file -> {
+            copy = file;
+            try {
+                stored.set(store.getAsBoolean());
+            } finally {
+                copy = null;
+            }
+        });
+        return stored.get();
+    }
+
+    /**
+     * Runs the given action with the entry staged in a temp file.
+     * The copy kept while streaming the entry is used when there is one, otherwise the entry is written to a temp file.
+     */
+    public void withStagedFile(Action<? super File> action) {
+        if (copied && copy != null) {
+            action.execute(copy);
+            return;
+        }
+        tmp.withTempFile(key, file -> {
+            try (OutputStream output = new FileOutputStream(file)) {
+                contentWriter.accept(output);
+            } catch (IOException e) {
+                writeFailure = new UncheckedIOException(e);
+                throw writeFailure;
+            } catch (RuntimeException e) {
+                writeFailure = e;
+                throw e;
+            }
+            size = file.length();
+            action.execute(file);
+        });
+    }
+
+    public boolean isStored() {
+        return stored;
+    }
+
+    /**
+     * The failure to produce the content, if any.
+     */
+    @Nullable
+    public RuntimeException getWriteFailure() {
+        return writeFailure;
+    }
+
+    /**
+     * The number of bytes of the entry, which is only known once it has been written.
+     */
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Records failures of the stream provided by the service, as the writer may wrap them.
+     * Also counts the written bytes and copies them to the given stream, if any.
+     */
+    private static class TransportOutputStream extends FilterOutputStream {
+        private final OutputStream copyOutput;
+        private IOException failure;
+        private long count;
+
+        TransportOutputStream(OutputStream delegate, @Nullable OutputStream copyOutput) {
+            super(delegate);
+            this.copyOutput = copyOutput;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+            if (copyOutput != null) {
+                copyOutput.write(b);
+            }
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+            if (copyOutput != null) {
+                copyOutput.write(b, off, len);
+            }
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+        }
+
+        private IOException recordFailure(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            return e;
+        }
+    }
+}
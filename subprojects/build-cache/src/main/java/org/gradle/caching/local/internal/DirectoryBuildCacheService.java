@@ -16,7 +16,9 @@
 
 package org.gradle.caching.local.internal;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Striped;
 import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentCache;
@@ -36,24 +38,32 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
+    private static final int LOCK_STRIPES = Runtime.getRuntime().availableProcessors() * 4;
 
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Entries are locked by key, so that loads and stores of different entries do not block each other
+    private final Striped<ReadWriteLock> locks;
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, fileAccessTracker, failedFileSuffix, Striped.readWriteLock(LOCK_STRIPES));
+    }
+
+    @VisibleForTesting
+    DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix, Striped<ReadWriteLock> locks) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.locks = locks;
     }
 
     private static class LoadAction implements Action<File> {
@@ -92,11 +102,12 @@ public boolean load(final BuildCacheKey key, final BuildCacheEntryReader reader)
     public void loadLocally(final BuildCacheKey key, final Action<? super File> reader) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
-            lock.readLock().lock();
+            Lock lock = locks.get(key.getHashCode()).readLock();
+            lock.lock();
             try {
                 loadInsideLock(key, reader);
             } finally {
-                lock.readLock().unlock();
+                lock.unlock();
             }
         });
     }
@@ -152,11 +163,12 @@ public void storeLocally(final BuildCacheKey key, final File file) {
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
-                lock.writeLock().lock();
+                Lock lock = locks.get(key.getHashCode()).writeLock();
+                lock.lock();
                 try {
                     storeInsideLock(key, file);
                 } finally {
-                    lock.writeLock().unlock();
+                    lock.unlock();
                 }
             }
         });
@@ -24,9 +24,15 @@ import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.StreamingBuildCacheService
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreBuildOperationType
 import org.gradle.caching.internal.origin.OriginMetadataFactory
+import org.gradle.caching.internal.origin.OriginWriter
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.caching.internal.packaging.impl.FormatDetectingBuildCacheEntryPacker
+import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker
+import org.gradle.caching.internal.packaging.impl.Lz4BuildCacheEntryPacker
 import org.gradle.caching.local.internal.LocalBuildCacheService
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.snapshot.FileSystemSnapshot
@@ -70,7 +76,7 @@ class DefaultBuildCacheControllerTest extends Specification {
 
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
-    BuildCacheController getController(boolean disableRemoteOnError = true) {
+    BuildCacheController getController(boolean disableRemoteOnError = true, boolean streamRemoteStores = false) {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
                 local,
@@ -83,6 +89,7 @@ class DefaultBuildCacheControllerTest extends Specification {
             false,
             false,
             disableRemoteOnError,
+            streamRemoteStores,
             fileSystemAccess,
             packer,
             originMetadataFactory,
@@ -118,6 +125,224 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.storeLocally(key, _)
     }
 
+    def "streams store to remote cache that supports it when not storing locally"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+            true
+        }
+        0 * remote.store(key, _)
+    }
+
+    def "stores to remote via file when streaming the entry is not possible"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> false
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+        }
+
+        and:
+        def storeOperations = operations.log.all(BuildCacheRemoteStoreBuildOperationType)
+        storeOperations.size() == 1
+        storeOperations[0].result.stored
+    }
+
+    def "stores copy kept while streaming to remote via file without packing the entry again"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+        packer = Mock(BuildCacheEntryPacker)
+        def stored = new ByteArrayOutputStream()
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+            false
+        }
+        1 * packer.pack(_, _, _, _) >> { entity, snapshots, OutputStream output, originWriter ->
+            output.write([1, 2, 3] as byte[])
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(stored)
+        }
+        0 * packer.pack(_, _, _, _)
+
+        and:
+        stored.toByteArray() == [1, 2, 3] as byte[]
+        def storeOperations = operations.log.all(BuildCacheRemoteStoreBuildOperationType)
+        storeOperations.size() == 1
+        storeOperations[0].details.archiveSize == 3
+        storeOperations[0].result.stored
+    }
+
+    def "stores later entries to remote via file once it could not take a streamed entry"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+
+        when:
+        def controller = getController(true, true)
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> false
+        1 * remote.store(key, _)
+
+        when:
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        0 * remote.storeStreaming(key, _)
+        1 * remote.store(key, _)
+    }
+
+    def "reports size of entry streamed to remote"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+        packer = Mock(BuildCacheEntryPacker)
+        packer.pack(_, _, _, _) >> { entity, snapshots, OutputStream output, originWriter ->
+            output.write([1, 2, 3] as byte[])
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+            true
+        }
+
+        and:
+        def storeOperations = operations.log.all(BuildCacheRemoteStoreBuildOperationType)
+        storeOperations.size() == 1
+        storeOperations[0].details.archiveSize == 3
+    }
+
+    def "disables remote cache when streaming the entry to it fails"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+        packer = Mock(BuildCacheEntryPacker)
+        packer.pack(_, _, _, _) >> { entity, snapshots, OutputStream output, originWriter ->
+            output.write(1)
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+
+        when:
+        def controller = getController(true, true)
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        noExceptionThrown()
+        1 * remote.storeStreaming(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new OutputStream() {
+                @Override
+                void write(int b) throws IOException {
+                    throw new IOException("Connection reset")
+                }
+            })
+            true
+        }
+        0 * remote.storeStreaming(key, _)
+        0 * remote.store(key, _)
+    }
+
+    def "propagates failure to pack the entry when streaming it to remote cache"() {
+        given:
+        local = null
+        remote = Mock(StreamingBuildCacheService)
+        def failure = new RuntimeException("Could not pack")
+        packer = Mock(BuildCacheEntryPacker)
+        packer.pack(_, _, _, _) >> { throw failure }
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.storeStreaming(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+            true
+        }
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def "does not stream store to remote when storing locally"() {
+        given:
+        remote = Mock(StreamingBuildCacheService)
+
+        when:
+        getController(true, true).store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        0 * remote.storeStreaming(key, _)
+        1 * remote.store(key, _)
+        1 * local.storeLocally(key, _)
+    }
+
+    def "loads entry packed with gzip when packing with LZ4"() {
+        given:
+        local = null
+        def tarPacker = Mock(BuildCacheEntryPacker)
+        def gzipPacker = new GZipBuildCacheEntryPacker(tarPacker)
+        def lz4Packer = new Lz4BuildCacheEntryPacker(tarPacker)
+        packer = new FormatDetectingBuildCacheEntryPacker(lz4Packer, gzipPacker, lz4Packer)
+        def gzipEntry = new ByteArrayOutputStream()
+        def unpacked = null
+
+        when:
+        gzipPacker.pack(cacheableEntity, [:], gzipEntry, Stub(OriginWriter))
+
+        then:
+        1 * tarPacker.pack(_, _, _, _) >> { entity, snapshots, OutputStream output, originWriter ->
+            output.write("content".bytes)
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+
+        when:
+        def result = controller.load(key, cacheableEntity)
+
+        then:
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream(gzipEntry.toByteArray()))
+            true
+        }
+        1 * tarPacker.unpack(_, _, _) >> { entity, InputStream input, originReader ->
+            unpacked = input.text
+            new BuildCacheEntryPacker.UnpackResult(null, 1, [:])
+        }
+
+        and:
+        result.present
+        unpacked == "content"
+    }
+
     def "does not store to local if local push is disabled"() {
         given:
         localPush = false
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local.internal
 
+import com.google.common.util.concurrent.Striped
 import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryReader
@@ -30,6 +31,9 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheServiceTest extends Specification {
@@ -134,4 +138,34 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "storing an entry does not wait for loading a different entry"() {
+        given:
+        def locks = Striped.readWriteLock(16)
+        service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed", locks)
+        // Pick a key that is guarded by a different lock than the loaded entry
+        def otherHashCode = (0..<100).collect { String.format("%08x", it) }.find { !locks.get(it).is(locks.get(hashCode)) }
+        def otherKey = Mock(BuildCacheKey) {
+            getHashCode() >> otherHashCode
+        }
+        service.storeLocally(key, temporaryFolder.createFile("foo"))
+        def loading = new CountDownLatch(1)
+        def stored = new CountDownLatch(1)
+        def storedWhileLoading = false
+
+        when:
+        def loader = Thread.start {
+            service.loadLocally(key, { file ->
+                loading.countDown()
+                storedWhileLoading = stored.await(10, TimeUnit.SECONDS)
+            })
+        }
+        loading.await()
+        service.storeLocally(otherKey, temporaryFolder.createFile("bar"))
+        stored.countDown()
+        loader.join()
+
+        then:
+        storedWhileLoading
+    }
 }
@@ -66,6 +66,13 @@ class ConfigurationCacheIO internal constructor(
     private
     val codecs = codecs()
 
+    /**
+     * State files are written and read from start to end, so a large buffer saves most of the
+     * system calls the default buffer would make for a build with many projects.
+     */
+    private
+    val stateBufferSize = 64 * 1024
+
     internal
     fun writeCacheEntryDetailsTo(
         buildStateRegistry: BuildStateRegistry,
@@ -206,7 +213,7 @@ class ConfigurationCacheIO internal constructor(
 
     internal
     fun writerContextFor(outputStream: OutputStream, profile: String): Pair<DefaultWriteContext, Codecs> =
-        KryoBackedEncoder(outputStream).let { encoder ->
+        KryoBackedEncoder(outputStream, stateBufferSize).let { encoder ->
             writeContextFor(
                 encoder,
                 loggingTracerFor(profile, encoder),
@@ -254,7 +261,7 @@ class ConfigurationCacheIO internal constructor(
     private
     fun readerContextFor(
         inputStream: InputStream,
-    ) = readerContextFor(KryoBackedDecoder(inputStream))
+    ) = readerContextFor(KryoBackedDecoder(inputStream, stateBufferSize))
 
     internal
     fun readerContextFor(
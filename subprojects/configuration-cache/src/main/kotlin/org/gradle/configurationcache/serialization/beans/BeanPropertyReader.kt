@@ -16,6 +16,7 @@
 
 package org.gradle.configurationcache.serialization.beans
 
+import com.google.common.primitives.Primitives.wrap
 import org.gradle.api.GradleException
 import org.gradle.configurationcache.extensions.unsafeLazy
 import org.gradle.configurationcache.problems.PropertyKind
@@ -27,10 +28,10 @@ import org.gradle.configurationcache.serialization.ownerService
 import org.gradle.configurationcache.serialization.withPropertyTrace
 import org.gradle.internal.instantiation.InstantiationScheme
 import org.gradle.internal.instantiation.InstantiatorFactory
-import org.gradle.internal.reflect.JavaReflectionUtil
 import org.gradle.internal.service.ServiceRegistry
 import java.io.IOException
 import java.lang.reflect.Field
+import kotlin.reflect.KClass
 
 
 class BeanPropertyReader(
@@ -43,7 +44,7 @@ class BeanPropertyReader(
     val instantiationScheme: InstantiationScheme = instantiatorFactory.decorateScheme()
 
     private
-    val relevantFields = relevantStateOf(beanType)
+    val relevantFields = relevantStateOf(beanType).map { ReadableField(it.field, it.unsupportedFieldType) }
 
     private
     val constructorForSerialization by unsafeLazy {
@@ -65,30 +66,36 @@ class BeanPropertyReader(
                 reportUnsupportedFieldType(it, "deserialize", fieldName)
             }
             readPropertyValue(PropertyKind.Field, fieldName) { fieldValue ->
-                set(bean, field, fieldValue)
+                set(bean, relevantField, fieldValue)
             }
         }
     }
 
     private
-    fun ReadContext.set(bean: Any, field: Field, value: Any?) {
-        val type = field.type
-        if (isAssignableTo(type, value)) {
-            field.set(bean, value)
+    fun ReadContext.set(bean: Any, relevantField: ReadableField, value: Any?) {
+        if (relevantField.assignableType.isInstance(value)) {
+            relevantField.field.set(bean, value)
         } else if (value != null) {
             logPropertyProblem("deserialize") {
                 text("value ")
                 reference(value.toString())
                 text(" is not assignable to ")
-                reference(type)
+                reference(relevantField.field.type)
             }
         }
     }
 
     private
-    fun isAssignableTo(type: Class<*>, value: Any?) =
-        type.isInstance(value) ||
-            type.isPrimitive && JavaReflectionUtil.getWrapperTypeForPrimitiveType(type).isInstance(value)
+    class ReadableField(
+        val field: Field,
+        val unsupportedFieldType: KClass<*>?
+    ) {
+        /**
+         * The type of the values that can be assigned to the field, with primitive types boxed,
+         * so it doesn't need to be looked up for every value read.
+         */
+        val assignableType: Class<*> = wrap(field.type)
+    }
 }
 
 
@@ -21,6 +21,7 @@
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -35,6 +36,7 @@
 public class CachingFileHasher implements FileHasher {
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final FileHasher delegate;
+    private final InodeKeyedFileHashCache inodeKeyedCache;
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
@@ -48,9 +50,11 @@ public CachingFileHasher(
         String cacheName,
         FileSystem fileSystem,
         int inMemorySize,
-        FileHasherStatistics.Collector statisticsCollector
+        FileHasherStatistics.Collector statisticsCollector,
+        InodeKeyedFileHashCache inodeKeyedCache
     ) {
         this.delegate = delegate;
+        this.inodeKeyedCache = inodeKeyedCache;
         this.fileSystem = fileSystem;
         this.cache = store.createCache(
             PersistentIndexedCacheParameters.of(cacheName, new InterningStringSerializer(stringInterner), new FileInfoSerializer()),
@@ -83,23 +87,37 @@ private FileInfo snapshot(File file) {
 
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
+        HashCode hash;
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
             FileInfo info = cache.getIfPresent(absolutePath);
 
             if (info != null && length == info.length && timestamp == info.timestamp) {
                 return info;
             }
+            hash = inodeKeyedCache.hash(file, length, timestamp, () -> hashContent(file, length));
+        } else {
+            hash = hashContent(file, length);
         }
 
-        HashCode hash = delegate.hash(file);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
-        statisticsCollector.reportFileHashed(length);
         return info;
     }
 
+    private HashCode hashContent(File file, long length) {
+        HashCode hash = delegate.hash(file);
+        statisticsCollector.reportFileHashed(length);
+        return hash;
+    }
+
     public void discard(String path) {
         cache.remove(path);
+        // Paths to the same file share the inode keyed hash, so it has to be discarded as well
+        File file = new File(path);
+        FileMetadata fileMetadata = fileSystem.stat(file);
+        if (fileMetadata.getType() == FileType.RegularFile) {
+            inodeKeyedCache.discard(file, fileMetadata.getLength(), fileMetadata.getLastModified());
+        }
     }
 
     @VisibleForTesting
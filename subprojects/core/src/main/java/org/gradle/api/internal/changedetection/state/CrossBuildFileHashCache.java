@@ -28,12 +28,18 @@
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class CrossBuildFileHashCache implements Closeable {
+    /**
+     * When set to {@code true}, the caches access their files through memory mapped segments.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.unsafe.cache.memory-mapped-file-hashes";
 
     private final PersistentCache cache;
     private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
+    private final boolean memoryMapped;
 
     public CrossBuildFileHashCache(ScopedCache scopedCache, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
+        this.memoryMapped = Boolean.getBoolean(MEMORY_MAPPED_PROPERTY);
         cache = scopedCache.cache(cacheKind.cacheId)
             .withDisplayName(cacheKind.description)
             .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
@@ -41,9 +47,9 @@ public CrossBuildFileHashCache(ScopedCache scopedCache, InMemoryCacheDecoratorFa
     }
 
     public <K, V> PersistentIndexedCache<K, V> createCache(PersistentIndexedCacheParameters<K, V> parameters, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
-        return cache.createCache(parameters
-            .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses))
-        );
+        PersistentIndexedCacheParameters<K, V> decoratedParameters = parameters
+            .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses));
+        return cache.createCache(memoryMapped ? decoratedParameters.withMemoryMappedStore() : decoratedParameters);
     }
 
     @Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+/**
+ * Hashes of files keyed by the identity of the file in the file system instead of by its path.
+ *
+ * Different paths to the same file, like hard links or a checkout which has been moved, can then share the hash.
+ */
+@ServiceScope(Scopes.UserHome.class)
+public interface InodeKeyedFileHashCache {
+
+    /**
+     * Does not know any hashes, so every file is hashed.
+     */
+    InodeKeyedFileHashCache NONE = new InodeKeyedFileHashCache() {
+        @Override
+        public HashCode hash(File file, long length, long lastModified, Supplier<HashCode> hasher) {
+            return hasher.get();
+        }
+
+        @Override
+        public void discard(File file, long length, long lastModified) {
+        }
+    };
+
+    /**
+     * Returns the hash of the given file, only using the hasher when the hash of the file is not known yet.
+     */
+    HashCode hash(File file, long length, long lastModified, Supplier<HashCode> hasher);
+
+    /**
+     * Forgets the hash of the given file, so that it is hashed again the next time it is seen.
+     */
+    void discard(File file, long length, long lastModified);
+}
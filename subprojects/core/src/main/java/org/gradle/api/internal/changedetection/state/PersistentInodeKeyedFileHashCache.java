@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the hashes of files keyed by device, inode, length and last modified time in the Gradle user home.
+ *
+ * Reading the inode requires an additional stat call, so the cache is only consulted when the hash is not known for the path of the file.
+ * On file systems without inodes, every file is hashed.
+ */
+public class PersistentInodeKeyedFileHashCache implements InodeKeyedFileHashCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentInodeKeyedFileHashCache.class);
+
+    private final PersistentIndexedCache<FileIdentity, HashCode> cache;
+    private volatile boolean inodesSupported = true;
+
+    public PersistentInodeKeyedFileHashCache(CrossBuildFileHashCache store, int inMemorySize) {
+        this.cache = store.createCache(
+            PersistentIndexedCacheParameters.of("fileHashesByInode", new FileIdentitySerializer(), new HashCodeSerializer()),
+            inMemorySize,
+            true);
+    }
+
+    @Override
+    public HashCode hash(File file, long length, long lastModified, Supplier<HashCode> hasher) {
+        FileIdentity identity = identify(file, length, lastModified);
+        if (identity == null) {
+            return hasher.get();
+        }
+        HashCode hash = cache.getIfPresent(identity);
+        if (hash == null) {
+            hash = hasher.get();
+            cache.put(identity, hash);
+        }
+        return hash;
+    }
+
+    @Override
+    public void discard(File file, long length, long lastModified) {
+        FileIdentity identity = identify(file, length, lastModified);
+        if (identity != null) {
+            cache.remove(identity);
+        }
+    }
+
+    @Nullable
+    private FileIdentity identify(File file, long length, long lastModified) {
+        if (!inodesSupported) {
+            return null;
+        }
+        try {
+            Map<String, Object> attributes = Files.readAttributes(file.toPath(), "unix:dev,ino");
+            return new FileIdentity(
+                ((Number) attributes.get("dev")).longValue(),
+                ((Number) attributes.get("ino")).longValue(),
+                length,
+                lastModified
+            );
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            LOGGER.debug("Cannot read inodes of files, not sharing file hashes between paths", e);
+            inodesSupported = false;
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class FileIdentity {
+        private final long device;
+        private final long inode;
+        private final long length;
+        private final long lastModified;
+
+        public FileIdentity(long device, long inode, long length, long lastModified) {
+            this.device = device;
+            this.inode = inode;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileIdentity that = (FileIdentity) o;
+            return device == that.device
+                && inode == that.inode
+                && length == that.length
+                && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(device);
+            result = 31 * result + Long.hashCode(inode);
+            result = 31 * result + Long.hashCode(length);
+            result = 31 * result + Long.hashCode(lastModified);
+            return result;
+        }
+    }
+
+    private static class FileIdentitySerializer extends AbstractSerializer<FileIdentity> {
+        @Override
+        public FileIdentity read(Decoder decoder) throws Exception {
+            long device = decoder.readLong();
+            long inode = decoder.readLong();
+            long length = decoder.readLong();
+            long lastModified = decoder.readLong();
+            return new FileIdentity(device, inode, length, lastModified);
+        }
+
+        @Override
+        public void write(Encoder encoder, FileIdentity value) throws Exception {
+            encoder.writeLong(value.device);
+            encoder.writeLong(value.inode);
+            encoder.writeLong(value.length);
+            encoder.writeLong(value.lastModified);
+        }
+    }
+}
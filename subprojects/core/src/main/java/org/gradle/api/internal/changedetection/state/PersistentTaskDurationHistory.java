@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.execution.plan.LocalTaskNode;
+import org.gradle.execution.plan.TaskDurationHistory;
+import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+/**
+ * Keeps the durations of tasks next to their execution history.
+ *
+ * The duration of a task is a moving average, where the latest build weighs as much as all previous builds together.
+ */
+public class PersistentTaskDurationHistory implements TaskDurationHistory {
+    private final PersistentIndexedCache<String, Long> durations;
+
+    public PersistentTaskDurationHistory(ExecutionHistoryCacheAccess cacheAccess, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+        this.durations = cacheAccess.get().createCache(
+            PersistentIndexedCacheParameters.of("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER)
+                .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(10000, false))
+        );
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getPreviousDuration(LocalTaskNode node) {
+        Long duration = durations.getIfPresent(keyFor(node));
+        return duration == null ? -1 : duration;
+    }
+
+    @Override
+    public void recordDuration(LocalTaskNode node, long durationMillis) {
+        String key = keyFor(node);
+        Long previousDuration = durations.getIfPresent(key);
+        durations.put(key, previousDuration == null ? durationMillis : (previousDuration + durationMillis) / 2);
+    }
+
+    private static String keyFor(LocalTaskNode node) {
+        return node.getTask().getIdentityPath().getPath();
+    }
+}
@@ -31,7 +31,9 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
+import org.gradle.caching.internal.packaging.impl.FormatDetectingBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.Lz4BuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
@@ -66,6 +68,11 @@
  * Build scoped services for build cache usage.
  */
 public final class BuildCacheServices extends AbstractPluginServiceRegistry {
+    /**
+     * When set, build cache entries are packed with LZ4 instead of gzip. Entries in both formats can be unpacked regardless.
+     * Both formats are stored under the same cache key, so Gradle versions that only unpack gzip cannot load entries packed with LZ4.
+     */
+    public static final String LZ4_PACKING_PROPERTY = "org.gradle.unsafe.build-cache.lz4-packing";
 
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
@@ -119,8 +126,10 @@ BuildCacheEntryPacker createResultPacker(
                 StreamHasher fileHasher,
                 StringInterner stringInterner
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner));
+                TarBuildCacheEntryPacker tarPacker = new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner);
+                GZipBuildCacheEntryPacker gzipPacker = new GZipBuildCacheEntryPacker(tarPacker);
+                Lz4BuildCacheEntryPacker lz4Packer = new Lz4BuildCacheEntryPacker(tarPacker);
+                return new FormatDetectingBuildCacheEntryPacker(Boolean.getBoolean(LZ4_PACKING_PROPERTY) ? lz4Packer : gzipPacker, gzipPacker, lz4Packer);
             }
 
             OriginMetadataFactory createOriginMetadataFactory(
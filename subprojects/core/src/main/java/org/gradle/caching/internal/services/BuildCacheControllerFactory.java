@@ -55,6 +55,7 @@
 public final class BuildCacheControllerFactory {
 
     public static final String REMOTE_CONTINUE_ON_ERROR_PROPERTY = "org.gradle.unsafe.build-cache.remote-continue-on-error";
+    public static final String REMOTE_STREAMING_STORE_PROPERTY = "org.gradle.unsafe.build-cache.remote-streaming-store";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildCacheControllerFactory.class);
 
@@ -132,6 +133,7 @@ public BuildCacheController call(BuildOperationContext context) {
                         logStackTraces,
                         emitDebugLogging,
                         !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
+                        Boolean.getBoolean(REMOTE_STREAMING_STORE_PROPERTY),
                         fileSystemAccess,
                         packer,
                         originMetadataFactory,
@@ -16,11 +16,11 @@
 
 package org.gradle.execution.plan;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.gradle.api.Action;
@@ -31,6 +31,7 @@
 import org.gradle.api.Task;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.TaskDestroyablesInternal;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.api.internal.tasks.TaskLocalStateInternal;
 import org.gradle.api.internal.tasks.properties.OutputFilePropertyType;
 import org.gradle.api.internal.tasks.properties.PropertyValue;
@@ -46,6 +47,8 @@
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,12 +63,16 @@
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -81,7 +88,7 @@ public class DefaultExecutionPlan implements ExecutionPlan, WorkSource<Node> {
 
     private final Set<Node> entryNodes = new LinkedHashSet<>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = new LinkedList<>();
+    private final Set<Node> executionQueue = new LinkedHashSet<>();
     private final List<Throwable> failures = new ArrayList<>();
     private final String displayName;
     private final TaskNodeFactory taskNodeFactory;
@@ -103,6 +110,15 @@ public class DefaultExecutionPlan implements ExecutionPlan, WorkSource<Node> {
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final Set<Node> finalizers = new LinkedHashSet<>();
     private final OrdinalNodeAccess ordinalNodeAccess = new OrdinalNodeAccess();
+    // The position of each node in the execution queue, used to visit the ready nodes in plan order
+    private final Map<Node, Integer> queuePositions = new IdentityHashMap<>();
+    // The expected duration of the longest path from each node to the end of the plan, when ordering nodes by their duration history
+    private final Map<Node, Long> remainingPathDurations = new IdentityHashMap<>();
+    // The nodes of the execution queue whose dependencies have completed, so that selecting a node does not need to visit the nodes that are still waiting
+    private final NavigableSet<Node> readyNodes = new TreeSet<>(this::compareReadyNodes);
+    private final Map<Node, Timer> runningTaskTimers = new IdentityHashMap<>();
+    private final Map<LocalTaskNode, Long> taskDurations = new LinkedHashMap<>();
+    private TaskDurationHistory durationHistory = TaskDurationHistory.NONE;
     private Consumer<LocalTaskNode> completionHandler = localTaskNode -> {
     };
 
@@ -114,6 +130,10 @@ public class DefaultExecutionPlan implements ExecutionPlan, WorkSource<Node> {
     // When false, there are definitely no nodes that are "selectable"
     private boolean maybeNodesSelectable;
 
+    // When true, there may be nodes in the execution queue that will not run and need to be discarded, which requires visiting the whole queue
+    // When false, the nodes that cannot be started are all waiting for their dependencies, resources or some external event
+    private boolean maybeNodesToDiscard;
+
     private boolean buildCancelled;
 
     public DefaultExecutionPlan(
@@ -357,7 +377,13 @@ public void close() {
         entryNodes.clear();
         nodeMapping.clear();
         executionQueue.clear();
+        readyNodes.clear();
+        queuePositions.clear();
+        remainingPathDurations.clear();
         runningNodes.clear();
+        runningTaskTimers.clear();
+        taskDurations.forEach(durationHistory::recordDuration);
+        taskDurations.clear();
         for (Node node : filteredNodes) {
             node.reset();
         }
@@ -366,19 +392,87 @@ public void close() {
         reachableCache.clear();
     }
 
+    @Override
+    public void useDurationHistory(TaskDurationHistory durationHistory) {
+        this.durationHistory = durationHistory;
+    }
+
     @Override
     public WorkSource<Node> finalizePlan() {
+        int position = 0;
+        for (Node node : executionQueue) {
+            queuePositions.put(node, position++);
+        }
+        if (durationHistory.isEnabled()) {
+            determineRemainingPathDurations();
+        }
         for (Node node : executionQueue) {
             node.updateAllDependenciesComplete();
+            if (node.allDependenciesComplete()) {
+                readyNodes.add(node);
+            }
         }
 
         maybeNodesSelectable = true;
         maybeNodesReady = true;
+        maybeNodesToDiscard = true;
 
         // For now
         return this;
     }
 
+    private void determineRemainingPathDurations() {
+        Map<Node, Long> previousDurations = new IdentityHashMap<>();
+        long knownDurationsTotal = 0;
+        int knownDurationsCount = 0;
+        for (Node node : executionQueue) {
+            if (node instanceof LocalTaskNode) {
+                long previousDuration = durationHistory.getPreviousDuration((LocalTaskNode) node);
+                previousDurations.put(node, previousDuration);
+                if (previousDuration >= 0) {
+                    knownDurationsTotal += previousDuration;
+                    knownDurationsCount++;
+                }
+            }
+        }
+        // Tasks that have not run before are expected to take as long as an average task
+        long unknownDuration = knownDurationsCount == 0 ? 0 : knownDurationsTotal / knownDurationsCount;
+
+        // The nodes that depend on a node, or finalize it, are later in the queue, so visit the queue backwards
+        // A node that another node should run after gets at least the remaining path of that node, so that it is still started first
+        Map<Node, Long> shouldRunAfterPathDurations = new IdentityHashMap<>();
+        List<Node> nodes = new ArrayList<>(executionQueue);
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node node = nodes.get(i);
+            long longestDependentPath = 0;
+            for (Node dependent : Iterables.concat(node.getDependencyPredecessors(), node.getFinalizers())) {
+                longestDependentPath = Math.max(longestDependentPath, remainingPathDurations.getOrDefault(dependent, 0L));
+            }
+            Long previousDuration = previousDurations.get(node);
+            long duration = previousDuration == null ? 0 : previousDuration < 0 ? unknownDuration : previousDuration;
+            long remainingPathDuration = Math.max(duration + longestDependentPath, shouldRunAfterPathDurations.getOrDefault(node, 0L));
+            remainingPathDurations.put(node, remainingPathDuration);
+            if (node instanceof TaskNode) {
+                for (Node shouldSuccessor : ((TaskNode) node).getShouldSuccessors()) {
+                    // Ignore soft orderings that the plan could not honour
+                    Integer shouldSuccessorPosition = queuePositions.get(shouldSuccessor);
+                    if (shouldSuccessorPosition != null && shouldSuccessorPosition < i) {
+                        shouldRunAfterPathDurations.merge(shouldSuccessor, remainingPathDuration, Math::max);
+                    }
+                }
+            }
+        }
+    }
+
+    private int compareReadyNodes(Node left, Node right) {
+        // Longest remaining path first, then in plan order
+        int result = Long.compare(remainingPathDurations.getOrDefault(right, 0L), remainingPathDurations.getOrDefault(left, 0L));
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(queuePositions.get(left), queuePositions.get(right));
+    }
+
     private void resourceUnlocked(ResourceLock resourceLock) {
         if (!(resourceLock instanceof WorkerLeaseRegistry.WorkerLease) && maybeNodesReady) {
             maybeNodesSelectable = true;
@@ -611,7 +705,20 @@ public Selection<Node> selectNext() {
         }
 
         List<ResourceLock> resources = new ArrayList<>();
-        Iterator<Node> iterator = Iterators.concat(priorityNodes.iterator(), executionQueue.iterator());
+        Node selected = selectReadyNode(resources);
+        if (selected != null) {
+            return Selection.of(selected);
+        }
+        if (!maybeNodesToDiscard) {
+            // The ready nodes cannot acquire the resources they need and there is nothing to discard, so there is no need to visit the whole queue
+            LOGGER.debug("No ready node could be selected");
+            maybeNodesSelectable = false;
+            return Selection.noWorkReadyToStart();
+        }
+
+        // No ready node could be started, so visit the whole queue, to discard nodes that will not run
+        maybeNodesToDiscard = false;
+        Iterator<Node> iterator = Iterables.concat(priorityNodes, executionQueue).iterator();
         boolean foundReadyNode = false;
         boolean skippedNode = false;
         while (iterator.hasNext()) {
@@ -621,40 +728,23 @@ public Selection<Node> selectNext() {
                     // Cannot execute this node due to failed dependencies - skip it
                     node.skipExecution(this::recordNodeCompleted);
                     iterator.remove();
+                    removeReadyNode(node);
                     skippedNode = true;
                     continue;
                 }
 
                 foundReadyNode = true;
 
-                Node prepareNode = node.getPrepareNode();
-                if (prepareNode != null) {
-                    if (!prepareNode.isRequired()) {
-                        prepareNode.require();
-                        prepareNode.updateAllDependenciesComplete();
-                    }
-                    if (prepareNode.allDependenciesComplete()) {
-                        if (attemptToStart(prepareNode, resources)) {
-                            node.addDependencySuccessor(prepareNode);
-                            node.forceAllDependenciesCompleteUpdate();
-                            return Selection.of(prepareNode);
-                        } else {
-                            // Cannot start prepare node, so skip to next node
-                            continue;
-                        }
-                    }
-                    // else prepare node has already completed
-                }
-
-                if (attemptToStart(node, resources)) {
-                    iterator.remove();
-                    return Selection.of(node);
+                selected = attemptToStartReadyNode(node, resources);
+                if (selected != null) {
+                    return Selection.of(selected);
                 }
             } else if (node.isComplete()) {
                 // node is complete
                 // - it is a priority node that has already executed
                 // - it is a finalizer for nodes that are all complete but did not execute
                 iterator.remove();
+                removeReadyNode(node);
             }
             // Else, node is not yet complete
             // - its dependencies are not yet complete
@@ -670,6 +760,7 @@ public Selection<Node> selectNext() {
         } else if (skippedNode) {
             // Skipped some nodes, which may invalidate some earlier nodes (for example a shared dependency of multiple finalizers when all finalizers are skipped), so start again
             maybeNodesSelectable = true;
+            maybeNodesToDiscard = true;
             return selectNext();
         } else {
             // Some tasks are yet to start
@@ -680,6 +771,72 @@ public Selection<Node> selectNext() {
         }
     }
 
+    /**
+     * Attempts to start one of the nodes known to be ready, in the same order as visiting the whole queue would.
+     * Nodes that need to be skipped are left to the visit of the whole queue.
+     */
+    @Nullable
+    private Node selectReadyNode(List<ResourceLock> resources) {
+        for (Node node : Iterables.concat(priorityNodes, readyNodes)) {
+            if (node.allDependenciesComplete() && node.allDependenciesSuccessful()) {
+                Node selected = attemptToStartReadyNode(node, resources);
+                if (selected != null) {
+                    return selected;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Attempts to start the given node, or its prepare node when it has not run yet. Returns the node that was started, if any.
+     */
+    @Nullable
+    private Node attemptToStartReadyNode(Node node, List<ResourceLock> resources) {
+        Node prepareNode = node.getPrepareNode();
+        if (prepareNode != null) {
+            if (!prepareNode.isRequired()) {
+                prepareNode.require();
+                prepareNode.updateAllDependenciesComplete();
+            }
+            if (prepareNode.allDependenciesComplete()) {
+                if (attemptToStart(prepareNode, resources)) {
+                    node.addDependencySuccessor(prepareNode);
+                    node.forceAllDependenciesCompleteUpdate();
+                    return prepareNode;
+                } else {
+                    // Cannot start prepare node, so skip to next node
+                    return null;
+                }
+            }
+            // else prepare node has already completed
+        }
+
+        if (attemptToStart(node, resources)) {
+            priorityNodes.remove(node);
+            dequeue(node);
+            return node;
+        }
+        return null;
+    }
+
+    private void dequeue(Node node) {
+        executionQueue.remove(node);
+        removeReadyNode(node);
+    }
+
+    private void removeReadyNode(Node node) {
+        // Only the nodes of the execution queue have a position, which is needed to order the ready nodes
+        if (queuePositions.containsKey(node)) {
+            readyNodes.remove(node);
+        }
+    }
+
+    @VisibleForTesting
+    Set<Node> getReadyNodes() {
+        return Collections.unmodifiableSet(readyNodes);
+    }
+
     private boolean attemptToStart(Node node, List<ResourceLock> resources) {
         resources.clear();
         if (!tryAcquireLocksForNode(node, resources)) {
@@ -865,6 +1022,9 @@ private boolean doesConsumerDependOnDestroyer(Node consumer, Node destroyer) {
 
     private void recordNodeExecutionStarted(Node node) {
         runningNodes.add(node);
+        if (durationHistory.isEnabled() && node instanceof LocalTaskNode) {
+            runningTaskTimers.put(node, Time.startTimer());
+        }
     }
 
     private void recordNodeCompleted(Node node) {
@@ -909,12 +1069,17 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
                 maybeNodesSelectable = true;
             }
             runningNodes.remove(node);
+            Timer timer = runningTaskTimers.remove(node);
             node.finishExecution(this::recordNodeCompleted);
             if (node.isFailed()) {
                 LOGGER.debug("Node {} failed", node);
                 handleFailure(node);
             } else {
                 LOGGER.debug("Node {} finished executing", node);
+                // Only the durations of tasks whose actions ran say how long the task takes, so do not record up-to-date, cached or skipped tasks
+                if (timer != null && ((LocalTaskNode) node).getTask().getState().getOutcome() == TaskExecutionOutcome.EXECUTED) {
+                    taskDurations.put((LocalTaskNode) node, timer.getElapsedMillis());
+                }
             }
         } finally {
             unlockProjectFor(node);
@@ -927,9 +1092,16 @@ private void maybeNodeReady(Node node) {
         if (node.allDependenciesComplete()) {
             maybeNodesReady = true;
             maybeNodesSelectable = true;
+            if (!node.allDependenciesSuccessful()) {
+                // The node will be skipped when visiting the whole queue
+                maybeNodesToDiscard = true;
+            }
             if (node.isPriority()) {
                 priorityNodes.add(node);
             }
+            if (queuePositions.containsKey(node)) {
+                readyNodes.add(node);
+            }
         }
     }
 
@@ -964,6 +1136,7 @@ private void updateFinalizerGroups() {
     }
 
     private void handleFailure(Node node) {
+        maybeNodesToDiscard = true;
         Throwable executionFailure = node.getExecutionFailure();
         if (executionFailure != null) {
             // Always abort execution for an execution failure (as opposed to a node failure)
@@ -1010,11 +1183,13 @@ private boolean abortExecution(boolean abortAll) {
             if (abortAll || node.isCanCancel()) {
                 node.abortExecution(this::recordNodeCompleted);
                 iterator.remove();
+                readyNodes.remove(node);
                 aborted = true;
             }
         }
         if (aborted) {
             maybeNodesSelectable = true;
+            maybeNodesToDiscard = true;
         }
         return aborted;
     }
@@ -67,6 +67,11 @@ public void addEntryTasks(Collection<? extends Task> tasks, int ordinal) {
         public void determineExecutionPlan() {
         }
 
+        @Override
+        public void useDurationHistory(TaskDurationHistory durationHistory) {
+            throw new IllegalStateException();
+        }
+
         @Override
         public WorkSource<Node> finalizePlan() {
             throw new IllegalStateException();
@@ -131,6 +136,12 @@ public void close() {
 
     void determineExecutionPlan();
 
+    /**
+     * Starts the ready nodes on the longest remaining path first, based on the durations of tasks in previous builds, instead of in plan order.
+     * Also records the durations of the tasks executed by this plan. Should be called before {@link #finalizePlan()}.
+     */
+    void useDurationHistory(TaskDurationHistory durationHistory);
+
     WorkSource<Node> finalizePlan();
 
     /**
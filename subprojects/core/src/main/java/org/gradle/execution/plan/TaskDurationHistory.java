@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+/**
+ * The durations of tasks in previous builds, which the execution plan uses to start the tasks on the longest remaining path first.
+ */
+@ServiceScope(Scopes.Gradle.class)
+public interface TaskDurationHistory {
+
+    /**
+     * Does not know any durations, so the execution plan runs nodes in plan order.
+     */
+    TaskDurationHistory NONE = new TaskDurationHistory() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getPreviousDuration(LocalTaskNode node) {
+            return -1;
+        }
+
+        @Override
+        public void recordDuration(LocalTaskNode node, long durationMillis) {
+        }
+    };
+
+    /**
+     * Whether the execution plan should order nodes by the durations of their remaining paths.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the duration of the given task in previous builds, in milliseconds, or -1 when it is not known.
+     */
+    long getPreviousDuration(LocalTaskNode node);
+
+    /**
+     * Records the duration of the given task in this build. Only called for tasks whose actions were executed.
+     */
+    void recordDuration(LocalTaskNode node, long durationMillis);
+}
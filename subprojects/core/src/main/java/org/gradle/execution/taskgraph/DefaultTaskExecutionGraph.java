@@ -35,6 +35,7 @@
 import org.gradle.execution.plan.Node;
 import org.gradle.execution.plan.NodeExecutor;
 import org.gradle.execution.plan.PlanExecutor;
+import org.gradle.execution.plan.TaskDurationHistory;
 import org.gradle.execution.plan.TaskNode;
 import org.gradle.internal.Cast;
 import org.gradle.internal.InternalListener;
@@ -66,6 +67,7 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<org.gradle.api.execution.TaskExecutionListener> taskListeners;
     private final BuildScopeListenerRegistrationListener buildScopeListenerRegistrationListener;
+    private final TaskDurationHistory taskDurationHistory;
     private final ServiceRegistry globalServices;
     private final BuildOperationExecutor buildOperationExecutor;
     private final ListenerBuildOperationDecorator listenerBuildOperationDecorator;
@@ -82,6 +84,7 @@ public DefaultTaskExecutionGraph(
         ListenerBroadcast<TaskExecutionGraphListener> graphListeners,
         ListenerBroadcast<org.gradle.api.execution.TaskExecutionListener> taskListeners,
         BuildScopeListenerRegistrationListener buildScopeListenerRegistrationListener,
+        TaskDurationHistory taskDurationHistory,
         ServiceRegistry globalServices
     ) {
         this.planExecutor = planExecutor;
@@ -92,6 +95,7 @@ public DefaultTaskExecutionGraph(
         this.graphListeners = graphListeners;
         this.taskListeners = taskListeners;
         this.buildScopeListenerRegistrationListener = buildScopeListenerRegistrationListener;
+        this.taskDurationHistory = taskDurationHistory;
         this.globalServices = globalServices;
         this.executionPlan = ExecutionPlan.EMPTY;
     }
@@ -136,6 +140,9 @@ private void assertIsThisGraphsPlan(ExecutionPlan plan) {
     }
 
     private ExecutionResult<Void> executeWithServices(ProjectExecutionServiceRegistry projectExecutionServices) {
+        if (taskDurationHistory.isEnabled()) {
+            executionPlan.useDurationHistory(taskDurationHistory);
+        }
         return planExecutor.process(
             executionPlan.finalizePlan(),
             new BuildOperationAwareExecutionAction(
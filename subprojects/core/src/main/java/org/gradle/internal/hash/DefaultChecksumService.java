@@ -20,6 +20,7 @@
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
+import org.gradle.api.internal.changedetection.state.InodeKeyedFileHashCache;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.service.scopes.Scopes;
 import org.gradle.internal.service.scopes.ServiceScope;
@@ -55,7 +56,7 @@ private CachingFileHasher createCache(
         HashFunction hashFunction,
         FileHasherStatistics.Collector statisticsCollector
     ) {
-        return new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector);
+        return new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector, InodeKeyedFileHashCache.NONE);
     }
 
     @Override
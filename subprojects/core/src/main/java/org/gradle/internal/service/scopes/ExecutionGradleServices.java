@@ -18,12 +18,14 @@
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.DefaultExecutionHistoryCacheAccess;
+import org.gradle.api.internal.changedetection.state.PersistentTaskDurationHistory;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.scopes.BuildScopedCache;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.execution.plan.TaskDurationHistory;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.enterprise.core.GradleEnterprisePluginManager;
 import org.gradle.internal.event.ListenerManager;
@@ -82,6 +84,11 @@
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class ExecutionGradleServices {
+    /**
+     * When set, the execution plan starts the tasks on the longest remaining path first, based on the durations of tasks in previous builds.
+     */
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.unsafe.scheduling.critical-path";
+
     ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCache cacheRepository) {
         return new DefaultExecutionHistoryCacheAccess(cacheRepository);
     }
@@ -100,6 +107,16 @@ ExecutionHistoryStore createExecutionHistoryStore(
         );
     }
 
+    TaskDurationHistory createTaskDurationHistory(
+        ExecutionHistoryCacheAccess executionHistoryCacheAccess,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory
+    ) {
+        if (!Boolean.getBoolean(CRITICAL_PATH_SCHEDULING_PROPERTY)) {
+            return TaskDurationHistory.NONE;
+        }
+        return new PersistentTaskDurationHistory(executionHistoryCacheAccess, inMemoryCacheDecoratorFactory);
+    }
+
     OutputFilesRepository createOutputFilesRepository(BuildScopedCache cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         PersistentCache cacheAccess = cacheRepository
             .crossVersionCache("buildOutputCleanup")
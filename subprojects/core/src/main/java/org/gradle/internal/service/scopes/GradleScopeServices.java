@@ -61,6 +61,7 @@
 import org.gradle.execution.plan.LocalTaskNodeExecutor;
 import org.gradle.execution.plan.NodeExecutor;
 import org.gradle.execution.plan.PlanExecutor;
+import org.gradle.execution.plan.TaskDurationHistory;
 import org.gradle.execution.plan.WorkNodeExecutor;
 import org.gradle.execution.taskgraph.DefaultTaskExecutionGraph;
 import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
@@ -174,6 +175,7 @@ TaskExecutionGraphInternal createTaskExecutionGraph(
         ListenerBroadcast<org.gradle.api.execution.TaskExecutionListener> taskListeners,
         ListenerBroadcast<TaskExecutionGraphListener> graphListeners,
         ListenerManager listenerManager,
+        TaskDurationHistory taskDurationHistory,
         ServiceRegistry gradleScopedServices
     ) {
         return new DefaultTaskExecutionGraph(
@@ -185,6 +187,7 @@ TaskExecutionGraphInternal createTaskExecutionGraph(
             graphListeners,
             taskListeners,
             listenerManager.getBroadcaster(BuildScopeListenerRegistrationListener.class),
+            taskDurationHistory,
             gradleScopedServices
         );
     }
@@ -31,6 +31,8 @@
 import org.gradle.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.api.internal.changedetection.state.GradleUserHomeScopeFileTimeStampInspector;
+import org.gradle.api.internal.changedetection.state.InodeKeyedFileHashCache;
+import org.gradle.api.internal.changedetection.state.PersistentInodeKeyedFileHashCache;
 import org.gradle.api.internal.changedetection.state.PropertiesFileFilter;
 import org.gradle.api.internal.changedetection.state.ResourceEntryFilter;
 import org.gradle.api.internal.changedetection.state.ResourceFilter;
@@ -49,6 +51,9 @@
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.build.BuildAddedListener;
 import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.OutputChangeListener;
 import org.gradle.internal.execution.OutputSnapshotter;
@@ -77,6 +82,7 @@
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.snapshot.CaseSensitivity;
 import org.gradle.internal.snapshot.ValueSnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
 import org.gradle.internal.vfs.FileSystemAccess;
 import org.gradle.internal.vfs.VirtualFileSystem;
@@ -101,6 +107,7 @@
 import java.io.File;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 import static org.gradle.internal.snapshot.CaseSensitivity.CASE_INSENSITIVE;
@@ -119,6 +126,17 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
 
     public static final String MAX_HIERARCHIES_TO_WATCH_PROPERTY = "org.gradle.vfs.watch.hierarchies.max";
 
+    /**
+     * Number of files in a directory tree of the build which are hashed on the snapshotting thread before the remaining files are hashed in parallel,
+     * using at most as many threads as there are workers. Parallel hashing is disabled when the property is not set or negative.
+     */
+    public static final String PARALLEL_HASHING_THRESHOLD_PROPERTY = "org.gradle.vfs.parallel-hashing.threshold";
+
+    /**
+     * When set, hashes of files are also cached by inode in the Gradle user home, so they can be shared between different paths to the same file.
+     */
+    public static final String INODE_KEYED_FILE_HASHES_PROPERTY = "org.gradle.unsafe.vfs.inode-keyed-file-hashes";
+
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
 
@@ -134,6 +152,16 @@ public static int getMaximumNumberOfWatchedHierarchies(StartParameter startParam
             : DEFAULT_MAX_HIERARCHIES_TO_WATCH;
     }
 
+    private static int getParallelHashingThreshold(StartParameter startParameter) {
+        String fromProperty = getSystemProperty(PARALLEL_HASHING_THRESHOLD_PROPERTY, startParameter.getSystemPropertiesArgs());
+        int threshold = fromProperty != null && !fromProperty.isEmpty()
+            ? Integer.parseInt(fromProperty, 10)
+            : -1;
+        return threshold < 0
+            ? DirectorySnapshotter.NO_PARALLEL_HASHING
+            : threshold;
+    }
+
     @Nullable
     private static String getSystemProperty(String systemProperty, Map<String, String> systemPropertiesArgs) {
         return systemPropertiesArgs.getOrDefault(systemProperty, System.getProperty(systemProperty));
@@ -171,15 +199,23 @@ CrossBuildFileHashCache createCrossBuildFileHashCache(GlobalScopedCache scopedCa
             return new CrossBuildFileHashCache(scopedCache, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
         }
 
+        InodeKeyedFileHashCache createInodeKeyedFileHashCache(CrossBuildFileHashCache fileStore) {
+            if (!Boolean.getBoolean(INODE_KEYED_FILE_HASHES_PROPERTY)) {
+                return InodeKeyedFileHashCache.NONE;
+            }
+            return new PersistentInodeKeyedFileHashCache(fileStore, FILE_HASHER_MEMORY_CACHE_SIZE);
+        }
+
         FileHasher createCachingFileHasher(
             FileHasherStatistics.Collector statisticsCollector,
             CrossBuildFileHashCache fileStore,
             FileSystem fileSystem,
             GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
             StreamHasher streamHasher,
-            StringInterner stringInterner
+            StringInterner stringInterner,
+            InodeKeyedFileHashCache inodeKeyedFileHashCache
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector, inodeKeyedFileHashCache);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -351,12 +387,17 @@ FileHasher createFileHasher(
             FileSystem fileSystem,
             StreamHasher streamHasher,
             StringInterner stringInterner,
-            FileHasherStatistics.Collector statisticsCollector
+            FileHasherStatistics.Collector statisticsCollector,
+            InodeKeyedFileHashCache inodeKeyedFileHashCache
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector, inodeKeyedFileHashCache);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
+        FileHashingExecutor createFileHashingExecutor(ExecutorFactory executorFactory, StartParameter startParameter) {
+            return new FileHashingExecutor(executorFactory.create("File hashing", startParameter.getMaxWorkerCount()));
+        }
+
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
             ListenerManager listenerManager,
@@ -364,7 +405,9 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            FileHashingExecutor fileHashingExecutor,
+            StartParameter startParameter
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
@@ -373,6 +416,8 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                fileHashingExecutor,
+                getParallelHashingThreshold(startParameter),
                 DirectoryScanner.getDefaultExcludes()
             );
 
@@ -433,6 +478,27 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(
         }
     }
 
+    /**
+     * Hashes the files of large directory trees in parallel, using at most as many threads as there are workers.
+     */
+    private static class FileHashingExecutor implements Executor, Stoppable {
+        private final ManagedExecutor executor;
+
+        public FileHashingExecutor(ManagedExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(command);
+        }
+
+        @Override
+        public void stop() {
+            executor.stop();
+        }
+    }
+
     private static class DefaultExcludesBuildListener extends BuildAdapter {
         private final DefaultFileSystemAccess fileSystemAccess;
 
@@ -45,7 +45,7 @@ class CachingFileHasherTest extends Specification {
     def setup() {
         file.write("some-content")
         1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _) >> cache
-        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 1000, statisticsCollector)
+        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 1000, statisticsCollector, InodeKeyedFileHashCache.NONE)
     }
 
     def "hashes file when hash not cached"() {
@@ -173,4 +173,43 @@ class CachingFileHasherTest extends Specification {
         1 * statisticsCollector.reportFileHashed(length)
         0 * _
     }
+
+    def "uses hash from inode keyed cache when hash not cached for path"() {
+        def inodeKeyedCache = Mock(InodeKeyedFileHashCache)
+        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _) >> cache
+        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 1000, statisticsCollector, inodeKeyedCache)
+        def stat = fileSystem.stat(file)
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.getIfPresent(file.absolutePath) >> null
+        1 * inodeKeyedCache.hash(file, stat.length, stat.lastModified, _) >> hash
+        1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
+            assert fileInfo.hash == hash
+            assert fileInfo.length == stat.length
+            assert fileInfo.timestamp == stat.lastModified
+        }
+        0 * _
+    }
+
+    def "discards hash from inode keyed cache"() {
+        def inodeKeyedCache = Mock(InodeKeyedFileHashCache)
+        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _) >> cache
+        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 1000, statisticsCollector, inodeKeyedCache)
+        def stat = fileSystem.stat(file)
+
+        when:
+        hasher.discard(file.absolutePath)
+
+        then:
+        1 * cache.remove(file.absolutePath)
+        1 * inodeKeyedCache.discard(file, stat.length, stat.lastModified)
+        0 * _
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCacheParameters
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory
+import org.gradle.cache.scopes.ScopedCache
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class CrossBuildFileHashCacheTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def persistentCache = Mock(PersistentCache)
+    def cacheBuilder = Stub(CacheBuilder) {
+        withDisplayName(_) >> { cacheBuilder }
+        withLockOptions(_) >> { cacheBuilder }
+        open() >> persistentCache
+    }
+    def scopedCache = Stub(ScopedCache) {
+        cache(_) >> cacheBuilder
+    }
+    def inMemoryCacheDecoratorFactory = Stub(InMemoryCacheDecoratorFactory)
+
+    def "uses file backed stores by default"() {
+        def hashCache = new CrossBuildFileHashCache(scopedCache, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES)
+
+        when:
+        hashCache.createCache(PersistentIndexedCacheParameters.of("fileHashes", String, String), 100, true)
+
+        then:
+        1 * persistentCache.createCache({ !it.memoryMapped })
+    }
+
+    def "uses memory mapped stores when enabled"() {
+        System.setProperty(CrossBuildFileHashCache.MEMORY_MAPPED_PROPERTY, "true")
+        def hashCache = new CrossBuildFileHashCache(scopedCache, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES)
+
+        when:
+        hashCache.createCache(PersistentIndexedCacheParameters.of("fileHashes", String, String), 100, true)
+
+        then:
+        1 * persistentCache.createCache({ it.memoryMapped })
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+@Requires(TestPrecondition.NOT_WINDOWS)
+class PersistentInodeKeyedFileHashCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def entries = [:]
+    def store = Stub(CrossBuildFileHashCache) {
+        createCache({ it.cacheName == "fileHashesByInode" }, _, _) >> Stub(PersistentIndexedCache) {
+            getIfPresent(_) >> { args -> entries[args[0]] }
+            put(_, _) >> { key, value -> entries[key] = value }
+            remove(_) >> { args -> entries.remove(args[0]) }
+        }
+    }
+    def hash = TestHashCodes.hashCodeFrom(0x0123)
+    def otherHash = TestHashCodes.hashCodeFrom(0x0321)
+    def file = tmpDir.createFile("testfile")
+    def hashCache = new PersistentInodeKeyedFileHashCache(store, 1000)
+
+    def setup() {
+        file.write("some-content")
+    }
+
+    def "hashes file when hash not known"() {
+        when:
+        def result = hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        then:
+        result == hash
+        entries.values() as List == [hash]
+    }
+
+    def "uses known hash of file"() {
+        given:
+        hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        when:
+        def result = hashCache.hash(file, file.length(), file.lastModified(), { throw new AssertionError("should not hash") })
+
+        then:
+        result == hash
+    }
+
+    def "shares hash between hard links to the same file"() {
+        given:
+        def link = tmpDir.file("link")
+        Files.createLink(link.toPath(), file.toPath())
+        hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        when:
+        def result = hashCache.hash(link, link.length(), link.lastModified(), { throw new AssertionError("should not hash") })
+
+        then:
+        result == hash
+    }
+
+    def "does not share hash between copies of a file"() {
+        given:
+        def copy = tmpDir.file("copy")
+        Files.copy(file.toPath(), copy.toPath())
+        hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        when:
+        def result = hashCache.hash(copy, file.length(), file.lastModified(), { otherHash })
+
+        then:
+        result == otherHash
+    }
+
+    def "hashes file again when length or last modified changed"() {
+        given:
+        hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        expect:
+        hashCache.hash(file, file.length() + 1, file.lastModified(), { otherHash }) == otherHash
+        hashCache.hash(file, file.length(), file.lastModified() + 1000, { otherHash }) == otherHash
+    }
+
+    def "hashes file again after its hash was discarded"() {
+        given:
+        hashCache.hash(file, file.length(), file.lastModified(), { hash })
+
+        when:
+        hashCache.discard(file, file.length(), file.lastModified())
+        def result = hashCache.hash(file, file.length(), file.lastModified(), { otherHash })
+
+        then:
+        result == otherHash
+    }
+
+    def "hashes missing file without caching its hash"() {
+        given:
+        def missing = tmpDir.file("missing")
+
+        when:
+        def result = hashCache.hash(missing, 0, 0, { hash })
+
+        then:
+        result == hash
+        entries.isEmpty()
+    }
+}
@@ -21,6 +21,7 @@ import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.DocumentationRegistry
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.tasks.Destroys
 import org.gradle.api.tasks.InputDirectory
@@ -32,6 +33,7 @@ import org.gradle.api.tasks.OutputFiles
 import org.gradle.api.tasks.TaskAction
 import org.gradle.composite.internal.BuildTreeWorkGraphController
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.resources.ResourceLock
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.testfixtures.internal.NativeServicesTestFixture
 import org.gradle.util.Path
@@ -59,11 +61,14 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         _ * task.taskDependencies >> taskDependencyResolvingTo(task, options.dependsOn ?: [])
         _ * task.lifecycleDependencies >> taskDependencyResolvingTo(task, options.dependsOn ?: [])
         _ * task.finalizedBy >> taskDependencyResolvingTo(task, options.finalizedBy ?: [])
-        _ * task.shouldRunAfter >> taskDependencyResolvingTo(task, [])
+        _ * task.shouldRunAfter >> taskDependencyResolvingTo(task, options.shouldRunAfter ?: [])
         _ * task.mustRunAfter >> taskDependencyResolvingTo(task, options.mustRunAfter ?: [])
         _ * task.sharedResources >> (options.resources ?: [])
         TaskStateInternal state = Mock()
         _ * task.state >> state
+        if (options.outcome != null) {
+            _ * state.outcome >> options.outcome
+        }
         if (options.failure != null) {
             failure(task, options.failure)
         }
@@ -1205,6 +1210,166 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         node4.task == mustRunAfter
     }
 
+    def "selects tasks whose dependencies complete out of order"() {
+        given:
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async, dependsOn: [a])
+        Task c = task("c", type: Async)
+        Task d = task("d", type: Async, dependsOn: [c])
+        addToGraphAndPopulate(b, d)
+
+        expect:
+        executionPlan.tasks as List == [a, b, c, d]
+
+        when:
+        def nodeA = selectNextTaskNode()
+        def nodeC = selectNextTaskNode()
+
+        then:
+        nodeA.task == a
+        nodeC.task == c
+        assertNoWorkReadyToStartAfterSelect()
+
+        when:
+        finishedExecuting(nodeC)
+        def nodeD = selectNextTaskNode()
+
+        then:
+        nodeD.task == d
+        assertNoWorkReadyToStartAfterSelect()
+
+        when:
+        finishedExecuting(nodeA)
+        assertLastTaskReady(b)
+        finishedExecuting(nodeD)
+
+        then:
+        assertAllWorkComplete()
+    }
+
+    def "does not keep skipped tasks ready"() {
+        given:
+        Task broken = task("broken", type: Async, failure: new RuntimeException())
+        Task dependent = task("dependent", type: Async, dependsOn: [broken])
+        Task other = task("other", type: Async)
+
+        when:
+        executionPlan.setContinueOnFailure(true)
+        addToGraphAndPopulate(dependent, other)
+
+        then:
+        executionPlan.tasks as List == [broken, dependent, other]
+        assertTasksReady(broken, other)
+        assertAllWorkComplete(true)
+        executionPlan.readyNodes.empty
+    }
+
+    def "does not visit the whole queue again while ready tasks are waiting for a shared resource"() {
+        given:
+        def resource = Mock(ResourceLock)
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async, resources: [resource])
+        addToGraphAndPopulate(a, b)
+
+        when:
+        def nodeA = selectNextTaskNode()
+        assertNoWorkReadyToStartAfterSelect()
+
+        then:
+        nodeA.task == a
+        // Once when attempting to start the ready nodes, and once when visiting the whole queue to discard nodes that will not run
+        2 * resource.tryLock() >> false
+
+        when:
+        finishedExecuting(nodeA)
+        assertNoWorkReadyToStartAfterSelect()
+
+        then:
+        1 * resource.tryLock() >> false
+    }
+
+    def "starts tasks on the longest remaining path first when using duration history"() {
+        given:
+        def durations = [a: 10L, b: 100L, c: 100L]
+        def durationHistory = Mock(TaskDurationHistory) {
+            _ * isEnabled() >> true
+            _ * getPreviousDuration(_) >> { LocalTaskNode node -> durations[node.task.name] }
+        }
+        Task a = task("a", type: Async, outcome: TaskExecutionOutcome.EXECUTED)
+        Task b = task("b", type: Async, outcome: TaskExecutionOutcome.EXECUTED)
+        Task c = task("c", type: Async, dependsOn: [b], outcome: TaskExecutionOutcome.EXECUTED)
+
+        when:
+        addToGraph(a, c)
+        executionPlan.determineExecutionPlan()
+        executionPlan.useDurationHistory(durationHistory)
+        executionPlan.finalizePlan()
+
+        then:
+        executionPlan.tasks as List == [a, b, c]
+        assertTasksReady(b, a)
+        assertLastTaskReady(c)
+        assertAllWorkComplete()
+
+        when:
+        executionPlan.close()
+
+        then:
+        1 * durationHistory.recordDuration({ it.task == a }, _)
+        1 * durationHistory.recordDuration({ it.task == b }, _)
+        1 * durationHistory.recordDuration({ it.task == c }, _)
+    }
+
+    def "starts task that another task should run after first when using duration history"() {
+        given:
+        def durations = [a: 100L, b: 10L]
+        def durationHistory = Stub(TaskDurationHistory) {
+            isEnabled() >> true
+            getPreviousDuration(_) >> { LocalTaskNode node -> durations[node.task.name] }
+        }
+        Task b = task("b", type: Async)
+        Task a = task("a", type: Async, shouldRunAfter: [b])
+
+        when:
+        addToGraph(a, b)
+        executionPlan.determineExecutionPlan()
+        executionPlan.useDurationHistory(durationHistory)
+        executionPlan.finalizePlan()
+
+        then:
+        executionPlan.tasks as List == [b, a]
+        assertTasksReady(b, a)
+        assertAllWorkComplete()
+    }
+
+    def "records durations only of tasks whose actions were executed"() {
+        given:
+        def durationHistory = Mock(TaskDurationHistory) {
+            _ * isEnabled() >> true
+            _ * getPreviousDuration(_) >> -1L
+        }
+        Task executed = task("executed", type: Async, outcome: TaskExecutionOutcome.EXECUTED)
+        Task upToDate = task("upToDate", type: Async, outcome: TaskExecutionOutcome.UP_TO_DATE)
+        Task fromCache = task("fromCache", type: Async, outcome: TaskExecutionOutcome.FROM_CACHE)
+
+        when:
+        addToGraph(executed, upToDate, fromCache)
+        executionPlan.determineExecutionPlan()
+        executionPlan.useDurationHistory(durationHistory)
+        executionPlan.finalizePlan()
+
+        then:
+        assertTasksReady(executed, upToDate, fromCache)
+        assertAllWorkComplete()
+
+        when:
+        executionPlan.close()
+
+        then:
+        1 * durationHistory.recordDuration({ it.task == executed }, _)
+        0 * durationHistory.recordDuration(_, _)
+    }
+
     def "handles an exception while walking the task graph when an enforced task is present"() {
         given:
         Task finalizer = task("finalizer", type: BrokenTask)
@@ -49,6 +49,7 @@ import org.gradle.execution.plan.NodeExecutor
 import org.gradle.execution.plan.PlanExecutor
 import org.gradle.execution.plan.SelfExecutingNode
 import org.gradle.execution.plan.TaskDependencyResolver
+import org.gradle.execution.plan.TaskDurationHistory
 import org.gradle.execution.plan.TaskNodeDependencyResolver
 import org.gradle.execution.plan.TaskNodeFactory
 import org.gradle.initialization.BuildCancellationToken
@@ -91,6 +92,7 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
         graphListeners,
         taskExecutionListeners,
         listenerRegistrationListener,
+        TaskDurationHistory.NONE,
         Stub(ServiceRegistry)
     )
     WorkerLeaseRegistry.WorkerLeaseCompletion parentWorkerLease
@@ -378,6 +380,7 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
             graphListeners,
             taskExecutionListeners,
             listenerRegistrationListener,
+            TaskDurationHistory.NONE,
             Stub(ServiceRegistry)
         )
         TaskExecutionGraphListener listener = Mock(TaskExecutionGraphListener)
@@ -414,6 +417,7 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
             graphListeners,
             taskExecutionListeners,
             listenerRegistrationListener,
+            TaskDurationHistory.NONE,
             Stub(ServiceRegistry)
         )
         def closure = Mock(Closure)
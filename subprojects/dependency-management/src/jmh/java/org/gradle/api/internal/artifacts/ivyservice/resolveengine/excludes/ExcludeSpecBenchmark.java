@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures merging and evaluating the excludes of a node with many incoming edges, each declaring excludes like the dependencies of a BOM-heavy build.
+ *
+ * The edges share most of their excludes, like dependencies managed by the same platform, and add a few of their own.
+ * Most excludes exclude a single module, some exclude a whole group or module name and a few exclude artifacts.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ExcludeSpecBenchmark {
+    private static final int GROUP_COUNT = 50;
+    private static final int MODULES_PER_GROUP = 40;
+    private static final int SHARED_EXCLUDES = 12;
+    private static final int OWN_EXCLUDES_PER_EDGE = 4;
+
+    @Param({"2", "10", "50"})
+    int incomingEdges;
+
+    private List<List<ExcludeMetadata>> edgeExcludes;
+    private ModuleIdentifier[] modules;
+    private ExcludeSpec mergedExcludes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1234L);
+        modules = new ModuleIdentifier[GROUP_COUNT * MODULES_PER_GROUP];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = DefaultModuleIdentifier.newId("org.group" + i / MODULES_PER_GROUP, "module" + i % MODULES_PER_GROUP);
+        }
+        List<ExcludeMetadata> sharedExcludes = new ArrayList<>(SHARED_EXCLUDES);
+        for (int i = 0; i < SHARED_EXCLUDES; i++) {
+            sharedExcludes.add(randomExclude(random));
+        }
+        edgeExcludes = new ArrayList<>(incomingEdges);
+        for (int i = 0; i < incomingEdges; i++) {
+            List<ExcludeMetadata> excludes = new ArrayList<>(sharedExcludes);
+            for (int j = 0; j < OWN_EXCLUDES_PER_EDGE; j++) {
+                excludes.add(randomExclude(random));
+            }
+            edgeExcludes.add(excludes);
+        }
+        mergedExcludes = mergeExcludes(new ModuleExclusions());
+    }
+
+    private ExcludeMetadata randomExclude(Random random) {
+        ModuleIdentifier module = modules[random.nextInt(modules.length)];
+        int kind = random.nextInt(20);
+        if (kind == 0) {
+            return new DefaultExclude(DefaultModuleIdentifier.newId(module.getGroup(), PatternMatchers.ANY_EXPRESSION));
+        }
+        if (kind == 1) {
+            return new DefaultExclude(DefaultModuleIdentifier.newId(PatternMatchers.ANY_EXPRESSION, module.getName()));
+        }
+        if (kind == 2) {
+            return new DefaultExclude(module, new DefaultIvyArtifactName(module.getName(), "jar", "jar", "sources"), new String[0], PatternMatchers.EXACT);
+        }
+        return new DefaultExclude(module);
+    }
+
+    /**
+     * Merges the excludes like the first resolution in a build, without cached merge results.
+     */
+    @Benchmark
+    public ExcludeSpec merge() {
+        return mergeExcludes(new ModuleExclusions());
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int excluded = 0;
+        for (ModuleIdentifier module : modules) {
+            if (mergedExcludes.excludes(module)) {
+                excluded++;
+            }
+        }
+        return excluded;
+    }
+
+    private ExcludeSpec mergeExcludes(ModuleExclusions moduleExclusions) {
+        // A module is only excluded when it is excluded by all incoming edges
+        ExcludeSpec nodeExcludes = null;
+        for (List<ExcludeMetadata> excludes : edgeExcludes) {
+            ExcludeSpec edgeExcludes = moduleExclusions.excludeAny(excludes);
+            nodeExcludes = nodeExcludes == null ? edgeExcludes : moduleExclusions.excludeAll(nodeExcludes, edgeExcludes);
+        }
+        return nodeExcludes;
+    }
+}
@@ -28,12 +28,15 @@
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 
 public class ModuleMetadataStore {
 
     private static final Joiner PATH_JOINER = Joiner.on("/");
+    private static final int MIN_READ_BUFFER_SIZE = 4096;
+    private static final int MAX_READ_BUFFER_SIZE = 64 * 1024;
     private final PathKeyFileStore metaDataStore;
     private final ModuleMetadataSerializer moduleMetadataSerializer;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
@@ -54,7 +57,8 @@ public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponent
         LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
             try {
-                try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner)) {
+                File descriptorFile = resource.getFile();
+                try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(descriptorFile), bufferSizeFor(descriptorFile)), stringInterner)) {
                     return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, Maps.newHashMap());
                 }
             } catch (Exception e) {
@@ -64,6 +68,14 @@ public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponent
         return null;
     }
 
+    /**
+     * Reads a whole descriptor with a single read, unless it is very large.
+     * The buffer is capped so that reading a large descriptor does not allocate a humongous object with G1.
+     */
+    private static int bufferSizeFor(File descriptorFile) {
+        return (int) Math.max(MIN_READ_BUFFER_SIZE, Math.min(MAX_READ_BUFFER_SIZE, descriptorFile.length()));
+    }
+
     public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryKey component, final ModuleComponentResolveMetadata metadata) {
         String[] filePath = getFilePath(component);
         return metaDataStore.add(PATH_JOINER.join(filePath), moduleDescriptorFile -> {
@@ -25,11 +25,14 @@
 
 abstract class DefaultCompositeExclude implements CompositeExclude {
     private final ImmutableSet<ExcludeSpec> components;
+    // Evaluating excludes is hot, so components are iterated without allocating
+    private final ExcludeSpec[] componentArray;
     private final int hashCode;
     private final int size;
 
     DefaultCompositeExclude(ImmutableSet<ExcludeSpec> components) {
         this.components = components;
+        this.componentArray = components.toArray(new ExcludeSpec[0]);
         this.size = components.size();
         this.hashCode = (31 * components.hashCode() + this.size) ^ mask();
     }
@@ -58,6 +61,10 @@ public final Stream<ExcludeSpec> components() {
         return components.stream();
     }
 
+    final ExcludeSpec[] componentArray() {
+        return componentArray;
+    }
+
     @Override
     public Set<ExcludeSpec> getComponents() {
         return components;
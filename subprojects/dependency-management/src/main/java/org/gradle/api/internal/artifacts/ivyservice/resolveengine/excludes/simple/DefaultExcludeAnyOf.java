@@ -44,12 +44,22 @@ protected String getDisplayName() {
 
     @Override
     public boolean excludes(ModuleIdentifier module) {
-        return components().anyMatch(e -> e.excludes(module));
+        for (ExcludeSpec component : componentArray()) {
+            if (component.excludes(module)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public boolean excludesArtifact(ModuleIdentifier module, IvyArtifactName artifactName) {
-        return components().anyMatch(e -> e.excludesArtifact(module, artifactName));
+        for (ExcludeSpec component : componentArray()) {
+            if (component.excludesArtifact(module, artifactName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
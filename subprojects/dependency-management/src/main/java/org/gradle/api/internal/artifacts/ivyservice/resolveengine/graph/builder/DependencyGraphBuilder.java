@@ -26,6 +26,7 @@
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.capabilities.Capability;
@@ -81,6 +82,15 @@
 
 public class DependencyGraphBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphBuilder.class);
+
+    /**
+     * When set, the metadata of components which the traversal will probably need later is downloaded together with the metadata it needs now.
+     *
+     * @see SpeculativeMetadataPrefetch
+     */
+    public static final String SPECULATIVE_METADATA_PREFETCH_PROPERTY = "org.gradle.unsafe.dependency-resolution.speculative-metadata-prefetch";
+    private static final int MAX_SPECULATIVE_PREFETCHES_PER_BATCH = 32;
+
     private final ModuleConflictHandler moduleConflictHandler;
     private final Spec<? super DependencyMetadata> edgeFilter;
     private final ResolveContextToComponentResolver moduleResolver;
@@ -148,7 +158,10 @@ public void resolve(final ResolveContext resolveContext, final DependencyGraphVi
         final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme, versionComparator, versionParser, moduleConflictHandler.getResolver(), graphSize, resolveContext.getResolutionStrategy().getConflictResolution(), syntheticDependencies, conflictTracker);
 
         Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache = Maps.newHashMapWithExpectedSize(graphSize / 2);
-        traverseGraph(resolveState, componentIdentifierCache);
+        SpeculativeMetadataPrefetch metadataPrefetch = Boolean.getBoolean(SPECULATIVE_METADATA_PREFETCH_PROPERTY)
+            ? new SpeculativeMetadataPrefetch(metaDataResolver, versionSelectorScheme, MAX_SPECULATIVE_PREFETCHES_PER_BATCH)
+            : null;
+        traverseGraph(resolveState, componentIdentifierCache, metadataPrefetch);
 
         validateGraph(resolveState, resolutionStrategy.isFailingOnDynamicVersions(), resolutionStrategy.isFailingOnChangingVersions());
 
@@ -180,7 +193,7 @@ private static int estimateSize(ResolveContext resolveContext) {
     /**
      * Traverses the dependency graph, resolving conflicts and building the paths from the root configuration.
      */
-    private void traverseGraph(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+    private void traverseGraph(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, @Nullable SpeculativeMetadataPrefetch metadataPrefetch) {
         resolveState.onMoreSelected(resolveState.getRoot());
         final List<EdgeState> dependencies = Lists.newArrayList();
 
@@ -195,9 +208,9 @@ private void traverseGraph(final ResolveState resolveState, final Map<ModuleVers
                 // Initialize and collect any new outgoing edges of this node
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
-                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState, componentIdentifierCache);
+                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState, componentIdentifierCache, metadataPrefetch);
                 node.collectEndorsedStrictVersions(dependencies);
-                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState, componentIdentifierCache);
+                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState, componentIdentifierCache, metadataPrefetch);
             } else {
                 // We have some batched up conflicts. Resolve the first, and continue traversing the graph
                 if (moduleConflictHandler.hasConflicts()) {
@@ -254,12 +267,13 @@ private boolean resolveEdges(final NodeState node,
                                  final Spec<EdgeState> dependencyFilter,
                                  final boolean recomputeSelectors,
                                  final ResolveState resolveState,
-                                 final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+                                 final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache,
+                                 @Nullable final SpeculativeMetadataPrefetch metadataPrefetch) {
         if (dependencies.isEmpty()) {
             return false;
         }
         if (performSelectionSerially(dependencies, dependencyFilter, resolveState, recomputeSelectors)) {
-            maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies, dependencyFilter);
+            maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies, dependencyFilter, resolveState, metadataPrefetch);
             attachToTargetRevisionsSerially(dependencies, dependencyFilter);
             return true;
         } else {
@@ -332,16 +346,32 @@ private void checkForModuleConflicts(ResolveState resolveState, ModuleResolveSta
     /**
      * Prepares the resolution of edges, either serially or concurrently.
      * It uses a simple heuristic to determine if we should perform concurrent resolution, based on the number of edges, and whether they have unresolved metadata.
+     * When speculative prefetching is enabled and metadata needs to be downloaded, the metadata of components which will probably be needed later is downloaded as part of the same batch.
      */
-    private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, List<EdgeState> dependencies, Spec<EdgeState> dependencyFilter) {
+    private void maybeDownloadMetadataInParallel(
+        NodeState node,
+        Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache,
+        List<EdgeState> dependencies,
+        Spec<EdgeState> dependencyFilter,
+        ResolveState resolveState,
+        @Nullable SpeculativeMetadataPrefetch metadataPrefetch
+    ) {
         List<ComponentState> requiringDownload = null;
         for (EdgeState dependency : dependencies) {
             if (!dependencyFilter.isSatisfiedBy(dependency)) {
                 continue;
             }
             ComponentState targetComponent = dependency.getTargetComponent();
-            if (targetComponent != null && targetComponent.isSelected() && !targetComponent.alreadyResolved()) {
-                if (!metaDataResolver.isFetchingMetadataCheap(toComponentId(targetComponent.getId(), componentIdentifierCache))) {
+            if (targetComponent != null && targetComponent.isSelected()) {
+                boolean alreadyResolved = targetComponent.alreadyResolved();
+                if (alreadyResolved && metadataPrefetch == null) {
+                    continue;
+                }
+                ComponentIdentifier targetComponentId = toComponentId(targetComponent.getId(), componentIdentifierCache);
+                if (metadataPrefetch != null && targetComponentId instanceof ModuleComponentIdentifier) {
+                    metadataPrefetch.componentRequested((ModuleComponentIdentifier) targetComponentId);
+                }
+                if (!alreadyResolved && !metaDataResolver.isFetchingMetadataCheap(targetComponentId)) {
                     // Avoid initializing the list if there are no components requiring download (a common case)
                     if (requiringDownload == null) {
                         requiringDownload = Lists.newArrayList();
@@ -350,14 +380,22 @@ private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionId
                 }
             }
         }
+        // Only prefetch when waiting for a download anyway
+        List<ModuleComponentIdentifier> toPrefetch = metadataPrefetch == null || requiringDownload == null
+            ? Collections.emptyList()
+            : metadataPrefetch.nextBatch(resolveState.getQueuedNodes());
+        int downloadCount = (requiringDownload == null ? 0 : requiringDownload.size()) + toPrefetch.size();
         // Only download in parallel if there is more than 1 component to download
-        if (requiringDownload != null && requiringDownload.size() > 1) {
-            final ImmutableList<ComponentState> toDownloadInParallel = ImmutableList.copyOf(requiringDownload);
-            LOGGER.debug("Submitting {} metadata files to resolve in parallel for {}", toDownloadInParallel.size(), node);
+        if (downloadCount > 1) {
+            final ImmutableList<ComponentState> toDownloadInParallel = requiringDownload == null ? ImmutableList.of() : ImmutableList.copyOf(requiringDownload);
+            LOGGER.debug("Submitting {} metadata files to resolve in parallel for {}, prefetching {} more", toDownloadInParallel.size(), node, toPrefetch.size());
             buildOperationExecutor.runAll(buildOperationQueue -> {
                 for (final ComponentState componentState : toDownloadInParallel) {
                     buildOperationQueue.add(new DownloadMetadataOperation(componentState));
                 }
+                for (ModuleComponentIdentifier id : toPrefetch) {
+                    buildOperationQueue.add(new PrefetchMetadataOperation(metaDataResolver, id));
+                }
             }, BuildOperationConstraint.UNCONSTRAINED);
         }
     }
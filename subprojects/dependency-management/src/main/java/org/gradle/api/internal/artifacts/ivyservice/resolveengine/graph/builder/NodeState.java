@@ -105,9 +105,9 @@ public class NodeState implements DependencyGraphNode {
     private Set<EdgeState> edgesToRecompute;
     private Multimap<ModuleIdentifier, DependencyState> potentiallyActivatedConstraints;
 
-    // caches
-    private final Map<DependencyMetadata, DependencyState> dependencyStateCache = Maps.newHashMap();
-    private final Map<DependencyState, EdgeState> edgesCache = Maps.newHashMap();
+    // caches, created when the node has dependencies
+    private Map<DependencyMetadata, DependencyState> dependencyStateCache;
+    private Map<DependencyState, EdgeState> edgesCache;
 
     // Caches the list of dependency states for dependencies
     private List<DependencyState> cachedDependencyStates;
@@ -523,6 +523,9 @@ private List<DependencyState> cacheDependencyStates(List<? extends DependencyMet
         if (dependencies.isEmpty()) {
             return Collections.emptyList();
         }
+        if (dependencyStateCache == null) {
+            dependencyStateCache = Maps.newHashMapWithExpectedSize(dependencies.size());
+        }
         List<DependencyState> tmp = Lists.newArrayListWithCapacity(dependencies.size());
         for (DependencyMetadata dependency : dependencies) {
             tmp.add(cachedDependencyStateFor(dependency));
@@ -535,6 +538,9 @@ private DependencyState cachedDependencyStateFor(DependencyMetadata md) {
     }
 
     private void createAndLinkEdgeState(DependencyState dependencyState, Collection<EdgeState> discoveredEdges, ExcludeSpec resolutionFilter, boolean deferSelection) {
+        if (edgesCache == null) {
+            edgesCache = Maps.newHashMapWithExpectedSize(cachedDependencyStates == null ? 1 : cachedDependencyStates.size());
+        }
         EdgeState dependencyEdge = edgesCache.computeIfAbsent(dependencyState, ds -> new EdgeState(this, ds, resolutionFilter, resolveState));
         dependencyEdge.computeSelector(); // the selector changes, if the 'versionProvidedByAncestors' state changes
         outgoingEdges.add(dependencyEdge);
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+
+/**
+ * Resolves the metadata of a component which is not in the graph yet, only to populate the metadata caches.
+ */
+class PrefetchMetadataOperation implements RunnableBuildOperation {
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final ModuleComponentIdentifier id;
+
+    PrefetchMetadataOperation(ComponentMetaDataResolver metaDataResolver, ModuleComponentIdentifier id) {
+        this.metaDataResolver = metaDataResolver;
+        this.id = id;
+    }
+
+    @Override
+    public void run(BuildOperationContext context) {
+        try {
+            metaDataResolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult());
+        } catch (RuntimeException e) {
+            // Ignore: the failure is reported if the traversal selects the component
+        }
+    }
+
+    @Override
+    public BuildOperationDescriptor.Builder description() {
+        return BuildOperationDescriptor.displayName("Prefetch metadata of " + id.getDisplayName());
+    }
+}
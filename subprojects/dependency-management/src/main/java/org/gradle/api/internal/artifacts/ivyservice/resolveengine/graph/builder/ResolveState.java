@@ -52,6 +52,7 @@
 import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.LinkedHashMap;
@@ -205,6 +206,13 @@ public SelectorState getSelector(DependencyState dependencyState, boolean ignore
         return selectorState;
     }
 
+    /**
+     * The nodes waiting to be visited, in the order they will be visited.
+     */
+    public Collection<NodeState> getQueuedNodes() {
+        return Collections.unmodifiableCollection(queue);
+    }
+
     @Nullable
     public NodeState peek() {
         return queue.isEmpty() ? null : queue.getFirst();
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Guesses which module versions the graph traversal will need next, so that their metadata can be downloaded
+ * together with the metadata the traversal needs now.
+ *
+ * The guesses are the dependencies declared by the nodes waiting in the queue, which are up to two levels deeper in the graph than the node being visited.
+ * Only dependencies on a fixed version, which are not changing, don't declare artifacts and are not client modules, are considered:
+ * their metadata is resolved in exactly the same way as when the traversal selects them.
+ * A guess which the traversal doesn't select, for example because of conflict resolution, substitution or excludes, only costs a download.
+ */
+class SpeculativeMetadataPrefetch {
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final int maxComponentsPerBatch;
+    private final Set<NodeState> inspectedNodes = Sets.newHashSet();
+    private final Set<ModuleComponentIdentifier> requestedComponents = Sets.newHashSet();
+
+    SpeculativeMetadataPrefetch(ComponentMetaDataResolver metaDataResolver, VersionSelectorScheme versionSelectorScheme, int maxComponentsPerBatch) {
+        this.metaDataResolver = metaDataResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.maxComponentsPerBatch = maxComponentsPerBatch;
+    }
+
+    /**
+     * Marks the component as requested, so it is not prefetched. The traversal resolves it anyway.
+     */
+    void componentRequested(ModuleComponentIdentifier id) {
+        requestedComponents.add(id);
+    }
+
+    /**
+     * Returns the components to prefetch for the given queued nodes, which have not been requested before.
+     */
+    List<ModuleComponentIdentifier> nextBatch(Collection<NodeState> queuedNodes) {
+        List<ModuleComponentIdentifier> batch = Lists.newArrayList();
+        for (NodeState node : queuedNodes) {
+            if (batch.size() >= maxComponentsPerBatch) {
+                break;
+            }
+            if (!node.isSelected() || !inspectedNodes.add(node)) {
+                continue;
+            }
+            for (DependencyMetadata dependency : node.getMetadata().getDependencies()) {
+                ModuleComponentIdentifier id = toFixedVersionComponent(dependency);
+                if (id != null && !metaDataResolver.isFetchingMetadataCheap(id) && requestedComponents.add(id)) {
+                    batch.add(id);
+                }
+            }
+        }
+        return batch;
+    }
+
+    @Nullable
+    private ModuleComponentIdentifier toFixedVersionComponent(DependencyMetadata dependency) {
+        ComponentSelector selector = dependency.getSelector();
+        if (!(selector instanceof ModuleComponentSelector)
+            || dependency.isConstraint()
+            || dependency.isChanging()
+            || !dependency.getArtifacts().isEmpty()
+            || DefaultComponentOverrideMetadata.extractClientModule(dependency) != null) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+        String version = Strings.isNullOrEmpty(versionConstraint.getStrictVersion()) ? versionConstraint.getRequiredVersion() : versionConstraint.getStrictVersion();
+        if (Strings.isNullOrEmpty(version) || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getModuleIdentifier(), version);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import spock.lang.Specification
+
+class SpeculativeMetadataPrefetchTest extends Specification {
+    def metaDataResolver = Stub(ComponentMetaDataResolver)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    def prefetch = new SpeculativeMetadataPrefetch(metaDataResolver, versionSelectorScheme, 3)
+
+    def "prefetches dependencies on fixed versions of queued nodes once"() {
+        def node = node(dependency("a", "1.0"), dependency("b", "[1.0,2.0)"), dependency("c", "latest.release"), dependency("d", "2.0"))
+
+        expect:
+        prefetch.nextBatch([node]) == [id("a", "1.0"), id("d", "2.0")]
+        prefetch.nextBatch([node]) == []
+        prefetch.nextBatch([node(dependency("a", "1.0"))]) == []
+    }
+
+    def "does not prefetch constraints, changing dependencies or components which have been requested"() {
+        def constraint = dependency("a", "1.0")
+        constraint.isConstraint() >> true
+        def changing = dependency("b", "1.0")
+        changing.isChanging() >> true
+        prefetch.componentRequested(id("c", "1.0"))
+
+        expect:
+        prefetch.nextBatch([node(constraint, changing, dependency("c", "1.0"))]) == []
+    }
+
+    def "does not prefetch components with cheap metadata"() {
+        metaDataResolver.isFetchingMetadataCheap(id("a", "1.0")) >> true
+
+        expect:
+        prefetch.nextBatch([node(dependency("a", "1.0"), dependency("b", "1.0"))]) == [id("b", "1.0")]
+    }
+
+    def "stops inspecting queued nodes when the batch is full"() {
+        def first = node(dependency("a", "1.0"), dependency("b", "1.0"), dependency("c", "1.0"))
+        def second = node(dependency("d", "1.0"))
+
+        expect:
+        prefetch.nextBatch([first, second]) == [id("a", "1.0"), id("b", "1.0"), id("c", "1.0")]
+        prefetch.nextBatch([first, second]) == [id("d", "1.0")]
+    }
+
+    private NodeState node(DependencyMetadata... dependencies) {
+        def metadata = Stub(ConfigurationMetadata) {
+            getDependencies() >> (dependencies as List)
+        }
+        return Stub(NodeState) {
+            isSelected() >> true
+            getMetadata() >> metadata
+        }
+    }
+
+    private DependencyMetadata dependency(String name, String version) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), version)
+        return Stub(DependencyMetadata) {
+            getSelector() >> selector
+            getArtifacts() >> []
+        }
+    }
+
+    private static id(String name, String version) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), version)
+    }
+}
@@ -27,6 +27,7 @@
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 public interface FileWatcherRegistry extends Closeable {
@@ -36,9 +37,58 @@ public interface FileWatcherRegistry extends Closeable {
     interface ChangeHandler {
         void handleChange(Type type, Path path);
 
+        /**
+         * Handles changes which have been received together, in the order they have been received.
+         */
+        default void handleChanges(List<Change> changes) {
+            for (Change change : changes) {
+                handleChange(change.getType(), change.getPath());
+            }
+        }
+
         void stopWatchingAfterError();
     }
 
+    class Change {
+        private final Type type;
+        private final Path path;
+
+        public Change(Type type, Path path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Change change = (Change) o;
+            return type == change.type && path.equals(change.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, path);
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + path;
+        }
+    }
+
     enum Type {
         CREATED,
         MODIFIED,
@@ -33,6 +33,7 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -49,6 +50,7 @@
 
 public class DefaultFileWatcherRegistry implements FileWatcherRegistry {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileWatcherRegistry.class);
+    private static final int MAX_EVENTS_HANDLED_TOGETHER = 1000;
 
     private final AbstractFileEventFunctions<?> fileEventFunctions;
     private final FileWatcher watcher;
@@ -78,49 +80,15 @@ private Thread createAndStartEventConsumerThread(ChangeHandler handler) {
         Thread thread = new Thread(() -> {
             LOGGER.debug("Started listening to file system change events");
             try {
+                List<FileWatchEvent> events = new ArrayList<>();
                 while (consumeEvents) {
-                    FileWatchEvent nextEvent = fileEvents.take();
+                    // Handle all the events which have queued up together, so changes can be applied to the VFS in one go
+                    events.add(fileEvents.take());
+                    fileEvents.drainTo(events, MAX_EVENTS_HANDLED_TOGETHER - 1);
                     if (!stopping) {
-                        nextEvent.handleEvent(new FileWatchEvent.Handler() {
-                            @Override
-                            public void handleChangeEvent(FileWatchEvent.ChangeType type, String absolutePath) {
-                                fileWatchingStatistics.eventReceived();
-                                fileWatcherUpdater.triggerWatchProbe(absolutePath);
-                                handler.handleChange(convertType(type), Paths.get(absolutePath));
-                            }
-
-                            @Override
-                            public void handleUnknownEvent(String absolutePath) {
-                                LOGGER.error("Received unknown event for {}", absolutePath);
-                                fileWatchingStatistics.unknownEventEncountered();
-                                handler.stopWatchingAfterError();
-                            }
-
-                            @Override
-                            public void handleOverflow(FileWatchEvent.OverflowType type, @Nullable String absolutePath) {
-                                if (absolutePath == null) {
-                                    LOGGER.info("Overflow detected (type: {}), invalidating all watched files", type);
-                                    fileWatcherUpdater.getWatchedFiles().visitRoots(watchedRoot ->
-                                        handler.handleChange(OVERFLOW, Paths.get(watchedRoot)));
-                                } else {
-                                    LOGGER.info("Overflow detected (type: {}) for watched path '{}', invalidating", type, absolutePath);
-                                    handler.handleChange(OVERFLOW, Paths.get(absolutePath));
-                                }
-                            }
-
-                            @Override
-                            public void handleFailure(Throwable failure) {
-                                LOGGER.error("Error while receiving file changes", failure);
-                                fileWatchingStatistics.errorWhileReceivingFileChanges(failure);
-                                handler.stopWatchingAfterError();
-                            }
-
-                            @Override
-                            public void handleTerminated() {
-                                consumeEvents = false;
-                            }
-                        });
+                        handleEvents(events, handler);
                     }
+                    events.clear();
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -138,6 +106,78 @@ public void handleTerminated() {
         return thread;
     }
 
+    private void handleEvents(List<FileWatchEvent> events, ChangeHandler handler) {
+        EventBatchHandler batchHandler = new EventBatchHandler(handler);
+        for (FileWatchEvent event : events) {
+            if (!consumeEvents) {
+                break;
+            }
+            event.handleEvent(batchHandler);
+        }
+        batchHandler.flushChanges();
+    }
+
+    /**
+     * Collects the change events, and hands them to the change handler before any other kind of event and at the end of the batch.
+     */
+    private class EventBatchHandler implements FileWatchEvent.Handler {
+        private final ChangeHandler handler;
+        private List<Change> changes = new ArrayList<>();
+
+        public EventBatchHandler(ChangeHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleChangeEvent(FileWatchEvent.ChangeType type, String absolutePath) {
+            fileWatchingStatistics.eventReceived();
+            fileWatcherUpdater.triggerWatchProbe(absolutePath);
+            changes.add(new Change(convertType(type), Paths.get(absolutePath)));
+        }
+
+        @Override
+        public void handleUnknownEvent(String absolutePath) {
+            flushChanges();
+            LOGGER.error("Received unknown event for {}", absolutePath);
+            fileWatchingStatistics.unknownEventEncountered();
+            handler.stopWatchingAfterError();
+        }
+
+        @Override
+        public void handleOverflow(FileWatchEvent.OverflowType type, @Nullable String absolutePath) {
+            flushChanges();
+            if (absolutePath == null) {
+                LOGGER.info("Overflow detected (type: {}), invalidating all watched files", type);
+                fileWatcherUpdater.getWatchedFiles().visitRoots(watchedRoot ->
+                    handler.handleChange(OVERFLOW, Paths.get(watchedRoot)));
+            } else {
+                LOGGER.info("Overflow detected (type: {}) for watched path '{}', invalidating", type, absolutePath);
+                handler.handleChange(OVERFLOW, Paths.get(absolutePath));
+            }
+        }
+
+        @Override
+        public void handleFailure(Throwable failure) {
+            flushChanges();
+            LOGGER.error("Error while receiving file changes", failure);
+            fileWatchingStatistics.errorWhileReceivingFileChanges(failure);
+            handler.stopWatchingAfterError();
+        }
+
+        @Override
+        public void handleTerminated() {
+            consumeEvents = false;
+        }
+
+        public void flushChanges() {
+            if (!changes.isEmpty()) {
+                List<Change> changesToHandle = changes;
+                changes = new ArrayList<>();
+                handler.handleChanges(changesToHandle);
+            }
+        }
+    }
+
     @Override
     public boolean isWatchingAnyLocations() {
         return !fileWatcherUpdater.getWatchedFiles().isEmpty();
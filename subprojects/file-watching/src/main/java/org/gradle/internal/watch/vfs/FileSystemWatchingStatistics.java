@@ -18,6 +18,7 @@
 
 public interface FileSystemWatchingStatistics {
     int getNumberOfReceivedEvents();
+    int getNumberOfCoalescedEvents();
     int getNumberOfWatchedHierarchies();
 
     int getRetainedRegularFiles();
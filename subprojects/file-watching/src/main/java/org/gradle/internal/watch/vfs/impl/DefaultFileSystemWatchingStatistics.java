@@ -27,13 +27,16 @@
 
 public class DefaultFileSystemWatchingStatistics implements FileSystemWatchingStatistics {
     private final FileWatcherRegistry.FileWatchingStatistics fileWatchingStatistics;
+    private final int numberOfCoalescedEvents;
     private final VirtualFileSystemStatistics vfsStatistics;
 
     public DefaultFileSystemWatchingStatistics(
         FileWatcherRegistry.FileWatchingStatistics fileWatchingStatistics,
+        int numberOfCoalescedEvents,
         SnapshotHierarchy vfsRoot
     ) {
         this.fileWatchingStatistics = fileWatchingStatistics;
+        this.numberOfCoalescedEvents = numberOfCoalescedEvents;
         this.vfsStatistics = getStatistics(vfsRoot);
     }
 
@@ -42,6 +45,11 @@ public int getNumberOfReceivedEvents() {
         return fileWatchingStatistics.getNumberOfReceivedEvents();
     }
 
+    @Override
+    public int getNumberOfCoalescedEvents() {
+        return numberOfCoalescedEvents;
+    }
+
     @Override
     public int getNumberOfWatchedHierarchies() {
         return fileWatchingStatistics.getNumberOfWatchedHierarchies();
@@ -20,6 +20,7 @@
 import net.rubygrapefruit.platform.NativeException;
 import net.rubygrapefruit.platform.internal.jni.InotifyInstanceLimitTooLowException;
 import net.rubygrapefruit.platform.internal.jni.InotifyWatchesLimitTooLowException;
+import org.gradle.internal.file.FileHierarchySet;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
@@ -53,10 +54,13 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem implements BuildLifecycleAwareVirtualFileSystem, FileSystemWatchingInformation, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(WatchingVirtualFileSystem.class);
@@ -76,6 +80,11 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
      */
     private final Set<File> watchableHierarchiesRegisteredEarly = new LinkedHashSet<>();
 
+    /**
+     * Number of received changes which didn't need to be applied to the VFS since a change to the same location or an ancestor has been received together with them.
+     */
+    private final AtomicInteger coalescedEvents = new AtomicInteger();
+
     private FileWatcherRegistry watchRegistry;
     private Exception reasonForNotWatchingFiles;
     private boolean stateInvalidatedAtStartOfBuild;
@@ -152,11 +161,12 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                             newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot, watchMode, unsupportedFileSystems);
                         }
                         stateInvalidatedAtStartOfBuild = newRoot != currentRoot;
-                        statisticsSinceLastBuild = new DefaultFileSystemWatchingStatistics(statistics, newRoot);
+                        statisticsSinceLastBuild = new DefaultFileSystemWatchingStatistics(statistics, coalescedEvents.getAndSet(0), newRoot);
                         if (vfsLogging == VfsLogging.VERBOSE) {
-                            LOGGER.warn("Received {} file system events since last build while watching {} locations",
+                            LOGGER.warn("Received {} file system events since last build while watching {} locations, {} of them were covered by changes to other locations",
                                 statisticsSinceLastBuild.getNumberOfReceivedEvents(),
-                                statisticsSinceLastBuild.getNumberOfWatchedHierarchies());
+                                statisticsSinceLastBuild.getNumberOfWatchedHierarchies(),
+                                statisticsSinceLastBuild.getNumberOfCoalescedEvents());
                             LOGGER.warn("Virtual file system retained information about {} files, {} directories and {} missing files since last build",
                                 statisticsSinceLastBuild.getRetainedRegularFiles(),
                                 statisticsSinceLastBuild.getRetainedDirectories(),
@@ -247,11 +257,12 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                         } else {
                             newRoot = withWatcherChangeErrorHandling(currentRoot, () -> watchRegistry.updateVfsOnBuildFinished(currentRoot, watchMode, maximumNumberOfWatchedHierarchies, unsupportedFileSystems));
                         }
-                        statisticsDuringBuild = new DefaultFileSystemWatchingStatistics(statistics, newRoot);
+                        statisticsDuringBuild = new DefaultFileSystemWatchingStatistics(statistics, coalescedEvents.getAndSet(0), newRoot);
                         if (vfsLogging == VfsLogging.VERBOSE) {
-                            LOGGER.warn("Received {} file system events during the current build while watching {} locations",
+                            LOGGER.warn("Received {} file system events during the current build while watching {} locations, {} of them were covered by changes to other locations",
                                 statisticsDuringBuild.getNumberOfReceivedEvents(),
-                                statisticsDuringBuild.getNumberOfWatchedHierarchies());
+                                statisticsDuringBuild.getNumberOfWatchedHierarchies(),
+                                statisticsDuringBuild.getNumberOfCoalescedEvents());
                             LOGGER.warn("Virtual file system retains information about {} files, {} directories and {} missing files until next build",
                                 statisticsDuringBuild.getRetainedRegularFiles(),
                                 statisticsDuringBuild.getRetainedDirectories(),
@@ -350,6 +361,16 @@ public void handleChange(FileWatcherRegistry.Type type, Path path) {
             }
         }
 
+        @Override
+        public void handleChanges(List<FileWatcherRegistry.Change> changes) {
+            List<FileWatcherRegistry.Change> changesNotWrittenByCurrentBuild = changes.stream()
+                .filter(change -> !locationsWrittenByCurrentBuild.wasLocationWritten(change.getPath().toString()))
+                .collect(Collectors.toList());
+            if (!changesNotWrittenByCurrentBuild.isEmpty()) {
+                delegate.handleChanges(changesNotWrittenByCurrentBuild);
+            }
+        }
+
         @Override
         public void stopWatchingAfterError() {
             delegate.stopWatchingAfterError();
@@ -364,6 +385,42 @@ public void handleChange(FileWatcherRegistry.Type type, Path path) {
             ));
         }
 
+        @Override
+        public void handleChanges(List<FileWatcherRegistry.Change> changes) {
+            List<FileWatcherRegistry.Change> changesToInvalidate = removeChangesWithinOtherChanges(changes);
+            coalescedEvents.addAndGet(changes.size() - changesToInvalidate.size());
+            rootReference.update(root -> updateNotifyingListeners(diffListener -> {
+                SnapshotHierarchy newRoot = root;
+                for (FileWatcherRegistry.Change change : changesToInvalidate) {
+                    newRoot = newRoot.invalidate(change.getPath().toString(), new VfsChangeLoggingNodeDiffListener(change.getType(), change.getPath(), diffListener));
+                }
+                return newRoot;
+            }));
+        }
+
+        /**
+         * Removes the changes for locations which are the same as or below the location of another change,
+         * since invalidating the other location already invalidates them.
+         */
+        private List<FileWatcherRegistry.Change> removeChangesWithinOtherChanges(List<FileWatcherRegistry.Change> changes) {
+            if (changes.size() == 1) {
+                return changes;
+            }
+            FileHierarchySet changedLocations = FileHierarchySet.empty();
+            for (FileWatcherRegistry.Change change : changes) {
+                changedLocations = changedLocations.plus(change.getPath().toString());
+            }
+            Set<String> topMostChangedLocations = new HashSet<>();
+            changedLocations.visitRoots(topMostChangedLocations::add);
+            List<FileWatcherRegistry.Change> result = new ArrayList<>(topMostChangedLocations.size());
+            for (FileWatcherRegistry.Change change : changes) {
+                if (topMostChangedLocations.remove(change.getPath().toString())) {
+                    result.add(change);
+                }
+            }
+            return result;
+        }
+
         @Override
         public void stopWatchingAfterError() {
             stopWatchingAndInvalidateHierarchyAfterError();
@@ -394,6 +451,11 @@ public void handleChange(FileWatcherRegistry.Type type, Path path) {
             handlers.forEach(handler -> handler.handleChange(type, path));
         }
 
+        @Override
+        public void handleChanges(List<FileWatcherRegistry.Change> changes) {
+            handlers.forEach(handler -> handler.handleChanges(changes));
+        }
+
         @Override
         public void stopWatchingAfterError() {
             handlers.forEach(FileWatcherRegistry.ChangeHandler::stopWatchingAfterError);
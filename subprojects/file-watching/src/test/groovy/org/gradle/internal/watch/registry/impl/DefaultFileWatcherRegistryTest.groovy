@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.registry.impl
+
+import net.rubygrapefruit.platform.file.FileWatchEvent
+import net.rubygrapefruit.platform.file.FileWatcher
+import net.rubygrapefruit.platform.internal.jni.AbstractFileEventFunctions
+import org.gradle.internal.watch.registry.FileWatcherRegistry
+import org.gradle.internal.watch.registry.FileWatcherUpdater
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.LinkedBlockingQueue
+
+import static org.gradle.internal.watch.registry.FileWatcherRegistry.Type.MODIFIED
+
+class DefaultFileWatcherRegistryTest extends Specification {
+    def fileEventFunctions = Mock(AbstractFileEventFunctions)
+    def watcher = Stub(FileWatcher) {
+        awaitTermination(_, _) >> true
+    }
+    def fileWatcherUpdater = Mock(FileWatcherUpdater)
+    def fileEvents = new LinkedBlockingQueue<FileWatchEvent>()
+    def handledEvents = new CopyOnWriteArrayList<Object>()
+    def handler = new FileWatcherRegistry.ChangeHandler() {
+        @Override
+        void handleChange(FileWatcherRegistry.Type type, Path path) {
+            handledEvents.add([new FileWatcherRegistry.Change(type, path)])
+        }
+
+        @Override
+        void handleChanges(List<FileWatcherRegistry.Change> changes) {
+            handledEvents.add(new ArrayList<>(changes))
+        }
+
+        @Override
+        void stopWatchingAfterError() {
+            handledEvents.add("stopped")
+        }
+    }
+    def conditions = new PollingConditions(timeout: 10)
+    DefaultFileWatcherRegistry registry
+
+    def cleanup() {
+        registry?.close()
+    }
+
+    def "hands a burst of changes to the handler in batches of at most 1000 changes"() {
+        given:
+        def paths = (0..<1500).collect { "/file$it" }
+        paths.each { fileEvents.add(changed(it)) }
+
+        when:
+        registry = createRegistry()
+
+        then:
+        conditions.eventually {
+            assert handledEvents*.size() == [1000, 500]
+        }
+        handledEvents.flatten() == paths.collect { new FileWatcherRegistry.Change(MODIFIED, Paths.get(it)) }
+        registry.getAndResetStatistics().numberOfReceivedEvents == 1500
+    }
+
+    def "hands the changes received before another kind of event to the handler first"() {
+        given:
+        fileEvents.add(changed("/a"))
+        fileEvents.add(changed("/b"))
+        fileEvents.add(failure(new RuntimeException("broken")))
+        fileEvents.add(changed("/c"))
+
+        when:
+        registry = createRegistry()
+
+        then:
+        conditions.eventually {
+            assert handledEvents.size() == 3
+        }
+        handledEvents == [
+            [new FileWatcherRegistry.Change(MODIFIED, Paths.get("/a")), new FileWatcherRegistry.Change(MODIFIED, Paths.get("/b"))],
+            "stopped",
+            [new FileWatcherRegistry.Change(MODIFIED, Paths.get("/c"))]
+        ]
+    }
+
+    def "hands changes to the handler one by one by default"() {
+        given:
+        def changes = [
+            new FileWatcherRegistry.Change(MODIFIED, Paths.get("/a")),
+            new FileWatcherRegistry.Change(FileWatcherRegistry.Type.REMOVED, Paths.get("/b"))
+        ]
+        def handledChanges = []
+        def changeHandler = new FileWatcherRegistry.ChangeHandler() {
+            @Override
+            void handleChange(FileWatcherRegistry.Type type, Path path) {
+                handledChanges.add(new FileWatcherRegistry.Change(type, path))
+            }
+
+            @Override
+            void stopWatchingAfterError() {
+                throw new AssertionError("Should not stop watching")
+            }
+        }
+
+        when:
+        changeHandler.handleChanges(changes)
+
+        then:
+        handledChanges == changes
+    }
+
+    private DefaultFileWatcherRegistry createRegistry() {
+        new DefaultFileWatcherRegistry(fileEventFunctions, watcher, handler, fileWatcherUpdater, fileEvents)
+    }
+
+    private FileWatchEvent changed(String absolutePath) {
+        Stub(FileWatchEvent) {
+            handleEvent(_) >> { FileWatchEvent.Handler eventHandler -> eventHandler.handleChangeEvent(FileWatchEvent.ChangeType.MODIFIED, absolutePath) }
+        }
+    }
+
+    private FileWatchEvent failure(Throwable failure) {
+        Stub(FileWatchEvent) {
+            handleEvent(_) >> { FileWatchEvent.Handler eventHandler -> eventHandler.handleFailure(failure) }
+        }
+    }
+}
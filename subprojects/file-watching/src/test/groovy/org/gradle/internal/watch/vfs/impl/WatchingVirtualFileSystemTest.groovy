@@ -26,12 +26,15 @@ import org.gradle.internal.watch.registry.FileWatcherRegistry
 import org.gradle.internal.watch.registry.FileWatcherRegistryFactory
 import org.gradle.internal.watch.registry.WatchMode
 import org.gradle.internal.watch.registry.impl.DaemonDocumentationIndex
+import org.gradle.internal.watch.vfs.BuildFinishedFileSystemWatchingBuildOperationType
 import org.gradle.internal.watch.vfs.FileChangeListeners
 import org.gradle.internal.watch.vfs.VfsLogging
 import org.gradle.internal.watch.vfs.WatchLogging
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector
 import spock.lang.Specification
 
+import java.util.stream.Stream
+
 class WatchingVirtualFileSystemTest extends Specification {
     def watcherRegistryFactory = Mock(FileWatcherRegistryFactory)
     def watcherRegistry = Mock(FileWatcherRegistry)
@@ -230,4 +233,42 @@ class WatchingVirtualFileSystemTest extends Specification {
         1 * watcherRegistry.close()
         0 * _
     }
+
+    def "does not invalidate changed locations below other changed locations"() {
+        def vfsRoot = Mock(SnapshotHierarchy)
+        def parent = new File("parent").absoluteFile
+        def child = new File(parent, "child")
+        def other = new File("other").absoluteFile
+        FileWatcherRegistry.ChangeHandler changeHandler = null
+
+        when:
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        then:
+        1 * watcherRegistryFactory.createFileWatcherRegistry(_) >> { FileWatcherRegistry.ChangeHandler handler ->
+            changeHandler = handler
+            watcherRegistry
+        }
+        1 * watcherRegistry.updateVfsOnBuildStarted(_, _, _) >> vfsRoot
+
+        when:
+        changeHandler.handleChanges([
+            new FileWatcherRegistry.Change(FileWatcherRegistry.Type.MODIFIED, child.toPath()),
+            new FileWatcherRegistry.Change(FileWatcherRegistry.Type.REMOVED, parent.toPath()),
+            new FileWatcherRegistry.Change(FileWatcherRegistry.Type.CREATED, other.toPath())
+        ])
+        then:
+        1 * vfsRoot.invalidate(parent.absolutePath, _) >> vfsRoot
+        1 * vfsRoot.invalidate(other.absolutePath, _) >> vfsRoot
+        0 * vfsRoot.invalidate(_, _)
+        // Listeners for continuous build still receive every change
+        3 * fileChangeListeners.broadcastChange(_, _)
+
+        when:
+        watchingVirtualFileSystem.beforeBuildFinished(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner, Integer.MAX_VALUE)
+        then:
+        1 * watcherRegistry.getAndResetStatistics() >> Stub(FileWatcherRegistry.FileWatchingStatistics)
+        1 * watcherRegistry.updateVfsOnBuildFinished(_, WatchMode.ENABLED, Integer.MAX_VALUE, []) >> vfsRoot
+        _ * vfsRoot.rootSnapshots() >> { Stream.empty() }
+        buildOperationRunner.log.mostRecentResult(BuildFinishedFileSystemWatchingBuildOperationType).statistics.numberOfCoalescedEvents == 1
+    }
 }
@@ -17,21 +17,41 @@
 
 import com.google.common.io.ByteStreams;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
 
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+
+    private final HashFunction hashFunction;
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
+            if (inputStream instanceof FileInputStream) {
+                // Read file content straight into a direct buffer, avoiding the copy to a heap buffer
+                return doHash(((FileInputStream) inputStream).getChannel());
+            }
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
             throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
@@ -46,7 +66,7 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
             hasher.putHash(SIGNATURE);
             while (true) {
                 int nread = inputStream.read(buffer);
@@ -62,6 +82,45 @@ private HashCode doHash(InputStream inputStream, OutputStream outputStream) thro
         }
     }
 
+    private HashCode doHash(FileChannel channel) throws IOException {
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+            hasher.putHash(SIGNATURE);
+            while (channel.read(buffer) >= 0) {
+                castBuffer(buffer).flip();
+                hasher.putBytes(buffer);
+                castBuffer(buffer).clear();
+            }
+            return hasher.hash();
+        } finally {
+            returnDirectBuffer(buffer);
+        }
+    }
+
+    /**
+     * Without this cast, when the code compiled by Java 9+ is executed on Java 8, it will throw
+     * java.lang.NoSuchMethodError: Method flip()Ljava/nio/ByteBuffer; does not exist in class java.nio.ByteBuffer
+     */
+    @SuppressWarnings("RedundantCast")
+    private static <T extends Buffer> Buffer castBuffer(T byteBuffer) {
+        return (Buffer) byteBuffer;
+    }
+
+    private void returnDirectBuffer(ByteBuffer buffer) {
+        castBuffer(buffer).clear();
+        // Retain buffer if there is capacity in the queue, otherwise discard
+        directBuffers.offer(buffer);
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
     private void returnBuffer(byte[] buffer) {
         // Retain buffer if there is capacity in the queue, otherwise discard
         buffers.offer(buffer);
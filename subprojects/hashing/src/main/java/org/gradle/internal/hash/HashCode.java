@@ -40,6 +40,9 @@
  * This results in a memory footprint of 32 bytes.
  * Moreover, there is only one object for GC to keep track of.</p>
  *
+ * <p>The same applies to 160-bit and 256-bit hashes, like SHA-1 and SHA-256, which are stored in
+ * {@link HashCode160} and {@link HashCode256} respectively.</p>
+ *
  * Inspired by the Google Guava project – https://github.com/google/guava.
  */
 public abstract class HashCode implements Serializable, Comparable<HashCode> {
@@ -62,6 +65,19 @@ static HashCode fromBytes(byte[] bytes, Usage usage) {
                     bytesToLong(bytes, 0),
                     bytesToLong(bytes, 8)
                 );
+            case 20:
+                return new HashCode160(
+                    bytesToLong(bytes, 0),
+                    bytesToLong(bytes, 8),
+                    bytesToInt(bytes, 16)
+                );
+            case 32:
+                return new HashCode256(
+                    bytesToLong(bytes, 0),
+                    bytesToLong(bytes, 8),
+                    bytesToLong(bytes, 16),
+                    bytesToLong(bytes, 24)
+                );
             default:
                 return new ByteArrayBackedHashCode(usage == CLONE_BYTES_IF_NECESSARY
                     ? bytes.clone()
@@ -77,6 +93,27 @@ public static HashCode fromBytes(byte[] bytes) {
         return fromBytes(bytes, CLONE_BYTES_IF_NECESSARY);
     }
 
+    /**
+     * Creates a 128-bit hash code from its bytes, read as big-endian longs.
+     */
+    public static HashCode fromLongs(long first, long second) {
+        return new HashCode128(Long.reverseBytes(first), Long.reverseBytes(second));
+    }
+
+    /**
+     * Creates a 160-bit hash code from its bytes, read as big-endian longs and a big-endian int.
+     */
+    public static HashCode fromLongs(long first, long second, int third) {
+        return new HashCode160(Long.reverseBytes(first), Long.reverseBytes(second), Integer.reverseBytes(third));
+    }
+
+    /**
+     * Creates a 256-bit hash code from its bytes, read as big-endian longs.
+     */
+    public static HashCode fromLongs(long first, long second, long third, long fourth) {
+        return new HashCode256(Long.reverseBytes(first), Long.reverseBytes(second), Long.reverseBytes(third), Long.reverseBytes(fourth));
+    }
+
     public static HashCode fromString(String string) {
         int length = string.length();
 
@@ -113,6 +150,20 @@ private static int decode(char ch) {
 
     public abstract byte[] toByteArray();
 
+    /**
+     * Returns the eight bytes of the hash code starting at the given offset as a big-endian long.
+     */
+    public long getLong(int offset) {
+        return Long.reverseBytes(bytesToLong(bytes(), offset));
+    }
+
+    /**
+     * Returns the four bytes of the hash code starting at the given offset as a big-endian int.
+     */
+    public int getInt(int offset) {
+        return Integer.reverseBytes(bytesToInt(bytes(), offset));
+    }
+
     @Override
     public abstract int hashCode();
 
@@ -178,6 +229,18 @@ public byte[] toByteArray() {
             return bytes;
         }
 
+        @Override
+        public long getLong(int offset) {
+            switch (offset) {
+                case 0:
+                    return Long.reverseBytes(bits1);
+                case 8:
+                    return Long.reverseBytes(bits2);
+                default:
+                    return super.getLong(offset);
+            }
+        }
+
         @Override
         void appendToHasher(PrimitiveHasher hasher) {
             hasher.putLong(bits1);
@@ -220,6 +283,203 @@ public int compareTo(HashCode o) {
         }
     }
 
+    @VisibleForTesting
+    static class HashCode160 extends HashCode {
+        private final long bits1;
+        private final long bits2;
+        private final int bits3;
+
+        public HashCode160(long bits1, long bits2, int bits3) {
+            this.bits1 = bits1;
+            this.bits2 = bits2;
+            this.bits3 = bits3;
+        }
+
+        @Override
+        public int length() {
+            return 20;
+        }
+
+        @Override
+        byte[] bytes() {
+            return toByteArray();
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[20];
+            longToBytes(bits1, bytes, 0);
+            longToBytes(bits2, bytes, 8);
+            intToBytes(bits3, bytes, 16);
+            return bytes;
+        }
+
+        @Override
+        public long getLong(int offset) {
+            switch (offset) {
+                case 0:
+                    return Long.reverseBytes(bits1);
+                case 8:
+                    return Long.reverseBytes(bits2);
+                default:
+                    return super.getLong(offset);
+            }
+        }
+
+        @Override
+        public int getInt(int offset) {
+            if (offset == 16) {
+                return Integer.reverseBytes(bits3);
+            }
+            return super.getInt(offset);
+        }
+
+        @Override
+        void appendToHasher(PrimitiveHasher hasher) {
+            hasher.putLong(bits1);
+            hasher.putLong(bits2);
+            hasher.putInt(bits3);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) bits1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || o.getClass() != HashCode160.class) {
+                return false;
+            }
+
+            HashCode160 other = (HashCode160) o;
+
+            return bits1 == other.bits1 && bits2 == other.bits2 && bits3 == other.bits3;
+        }
+
+        @Override
+        public int compareTo(HashCode o) {
+            if (o.getClass() != HashCode160.class) {
+                return HashCode.compareBytes(bytes(), o.bytes());
+            }
+
+            HashCode160 other = (HashCode160) o;
+
+            int result = compareLongBytes(bits1, other.bits1);
+            if (result == 0) {
+                result = compareLongBytes(bits2, other.bits2);
+            }
+            if (result == 0) {
+                result = compareIntBytes(bits3, other.bits3);
+            }
+
+            return result;
+        }
+    }
+
+    @VisibleForTesting
+    static class HashCode256 extends HashCode {
+        private final long bits1;
+        private final long bits2;
+        private final long bits3;
+        private final long bits4;
+
+        public HashCode256(long bits1, long bits2, long bits3, long bits4) {
+            this.bits1 = bits1;
+            this.bits2 = bits2;
+            this.bits3 = bits3;
+            this.bits4 = bits4;
+        }
+
+        @Override
+        public int length() {
+            return 32;
+        }
+
+        @Override
+        byte[] bytes() {
+            return toByteArray();
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[32];
+            longToBytes(bits1, bytes, 0);
+            longToBytes(bits2, bytes, 8);
+            longToBytes(bits3, bytes, 16);
+            longToBytes(bits4, bytes, 24);
+            return bytes;
+        }
+
+        @Override
+        public long getLong(int offset) {
+            switch (offset) {
+                case 0:
+                    return Long.reverseBytes(bits1);
+                case 8:
+                    return Long.reverseBytes(bits2);
+                case 16:
+                    return Long.reverseBytes(bits3);
+                case 24:
+                    return Long.reverseBytes(bits4);
+                default:
+                    return super.getLong(offset);
+            }
+        }
+
+        @Override
+        void appendToHasher(PrimitiveHasher hasher) {
+            hasher.putLong(bits1);
+            hasher.putLong(bits2);
+            hasher.putLong(bits3);
+            hasher.putLong(bits4);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) bits1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || o.getClass() != HashCode256.class) {
+                return false;
+            }
+
+            HashCode256 other = (HashCode256) o;
+
+            return bits1 == other.bits1 && bits2 == other.bits2 && bits3 == other.bits3 && bits4 == other.bits4;
+        }
+
+        @Override
+        public int compareTo(HashCode o) {
+            if (o.getClass() != HashCode256.class) {
+                return HashCode.compareBytes(bytes(), o.bytes());
+            }
+
+            HashCode256 other = (HashCode256) o;
+
+            int result = compareLongBytes(bits1, other.bits1);
+            if (result == 0) {
+                result = compareLongBytes(bits2, other.bits2);
+            }
+            if (result == 0) {
+                result = compareLongBytes(bits3, other.bits3);
+            }
+            if (result == 0) {
+                result = compareLongBytes(bits4, other.bits4);
+            }
+
+            return result;
+        }
+    }
+
     private static class ByteArrayBackedHashCode extends HashCode {
         private final byte[] bytes;
 
@@ -293,6 +553,22 @@ private static int compareLong(long a, long b) {
         return (a < b) ? -1 : ((a == b) ? 0 : 1);
     }
 
+    /**
+     * Compares the bytes of two longs in the same order as {@link #compareBytes(byte[], byte[])} compares them once written to an array.
+     * Reversing the bytes puts the first byte in the most significant position, and flipping the sign bit of each byte makes comparing the
+     * signed bytes an unsigned comparison.
+     */
+    private static int compareLongBytes(long a, long b) {
+        return Long.compareUnsigned(Long.reverseBytes(a) ^ 0x8080808080808080L, Long.reverseBytes(b) ^ 0x8080808080808080L);
+    }
+
+    /**
+     * Compares the bytes of two ints in the same order as {@link #compareBytes(byte[], byte[])} compares them once written to an array.
+     */
+    private static int compareIntBytes(int a, int b) {
+        return Integer.compareUnsigned(Integer.reverseBytes(a) ^ 0x80808080, Integer.reverseBytes(b) ^ 0x80808080);
+    }
+
     private static int compareBytes(byte[] a, byte[] b) {
         int result;
         int len1 = a.length;
@@ -318,6 +594,20 @@ private static long bytesToLong(byte[] bytes, int offset) {
             | ((bytes[offset + 7] & 0xFFL) << 56);
     }
 
+    private static int bytesToInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+            | ((bytes[offset + 1] & 0xFF) << 8)
+            | ((bytes[offset + 2] & 0xFF) << 16)
+            | ((bytes[offset + 3] & 0xFF) << 24);
+    }
+
+    private static void intToBytes(int value, byte[] bytes, int offset) {
+        bytes[offset] = (byte) (value & 0xFF);
+        bytes[offset + 1] = (byte) ((value >>> 8) & 0xFF);
+        bytes[offset + 2] = (byte) ((value >>> 16) & 0xFF);
+        bytes[offset + 3] = (byte) ((value >>> 24) & 0xFF);
+    }
+
     private static void longToBytes(long value, byte[] bytes, int offset) {
         bytes[offset] = (byte) (value & 0xFF);
         bytes[offset + 1] = (byte) ((value >>> 8) & 0xFF);
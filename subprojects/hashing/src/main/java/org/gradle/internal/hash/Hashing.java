@@ -143,6 +143,21 @@ public static HashFunction sha512() {
         return SHA512;
     }
 
+    /**
+     * Non-cryptographic 128-bit MurmurHash3 hashing function.
+     * Much faster than MD5, but must only be used for content that cannot be crafted to collide on purpose.
+     */
+    public static HashFunction murmur3() {
+        return Murmur3HashFunction.INSTANCE;
+    }
+
+    /**
+     * Returns a {@link Hasher} that prefixes each value fed to the given primitive hasher with its length.
+     */
+    static Hasher prefixingHasher(PrimitiveHasher primitiveHasher) {
+        return new DefaultHasher(primitiveHasher);
+    }
+
     private static abstract class MessageDigestHashFunction implements HashFunction {
         private final int hexDigits;
 
@@ -288,6 +303,11 @@ public void putByte(byte b) {
             getDigest().update(b);
         }
 
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            getDigest().update(buffer);
+        }
+
         @Override
         public void putBytes(byte[] bytes) {
             getDigest().update(bytes);
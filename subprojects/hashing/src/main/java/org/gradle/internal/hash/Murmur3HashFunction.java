@@ -0,0 +1,297 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Non-cryptographic 128-bit MurmurHash3 (x64 variant, seed 0), which is much cheaper to compute than a message digest.
+ * Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+ *
+ * <p>Only use this hash function where collisions cannot be provoked on purpose, like hashing the contents of local files.</p>
+ */
+class Murmur3HashFunction implements HashFunction {
+    static final HashFunction INSTANCE = new Murmur3HashFunction();
+
+    private Murmur3HashFunction() {
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "MURMUR3-128";
+    }
+
+    @Override
+    public PrimitiveHasher newPrimitiveHasher() {
+        return new Murmur3Hasher();
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return Hashing.prefixingHasher(newPrimitiveHasher());
+    }
+
+    @Override
+    public HashCode hashBytes(byte[] bytes) {
+        PrimitiveHasher hasher = newPrimitiveHasher();
+        hasher.putBytes(bytes);
+        return hasher.hash();
+    }
+
+    @Override
+    public HashCode hashString(CharSequence string) {
+        PrimitiveHasher hasher = newPrimitiveHasher();
+        hasher.putString(string);
+        return hasher.hash();
+    }
+
+    @Override
+    public HashCode hashStream(InputStream stream) throws IOException {
+        HashingOutputStream hashingOutputStream = new HashingOutputStream(this, ByteStreams.nullOutputStream());
+        ByteStreams.copy(stream, hashingOutputStream);
+        return hashingOutputStream.hash();
+    }
+
+    @Override
+    public HashCode hashFile(File file) throws IOException {
+        HashingOutputStream hashingOutputStream = new HashingOutputStream(this, ByteStreams.nullOutputStream());
+        Files.copy(file, hashingOutputStream);
+        return hashingOutputStream.hash();
+    }
+
+    @Override
+    public int getHexDigits() {
+        return 32;
+    }
+
+    @Override
+    public String toString() {
+        return getAlgorithm();
+    }
+
+    private static class Murmur3Hasher implements PrimitiveHasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] pending = new byte[BLOCK_SIZE];
+        private int pendingLength;
+        private long length;
+        private long h1;
+        private long h2;
+        private boolean done;
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            length += len;
+            if (pendingLength > 0) {
+                int count = Math.min(len, BLOCK_SIZE - pendingLength);
+                System.arraycopy(bytes, off, pending, pendingLength, count);
+                pendingLength += count;
+                off += count;
+                len -= count;
+                if (pendingLength < BLOCK_SIZE) {
+                    return;
+                }
+                mixBlock(readLong(pending, 0), readLong(pending, 8));
+                pendingLength = 0;
+            }
+            while (len >= BLOCK_SIZE) {
+                mixBlock(readLong(bytes, off), readLong(bytes, off + 8));
+                off += BLOCK_SIZE;
+                len -= BLOCK_SIZE;
+            }
+            System.arraycopy(bytes, off, pending, 0, len);
+            pendingLength = len;
+        }
+
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            checkNotDone();
+            if (pendingLength > 0) {
+                int count = Math.min(buffer.remaining(), BLOCK_SIZE - pendingLength);
+                buffer.get(pending, pendingLength, count);
+                length += count;
+                pendingLength += count;
+                if (pendingLength < BLOCK_SIZE) {
+                    return;
+                }
+                mixBlock(readLong(pending, 0), readLong(pending, 8));
+                pendingLength = 0;
+            }
+            ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                while (buffer.remaining() >= BLOCK_SIZE) {
+                    mixBlock(buffer.getLong(), buffer.getLong());
+                    length += BLOCK_SIZE;
+                }
+            } finally {
+                buffer.order(order);
+            }
+            int remaining = buffer.remaining();
+            buffer.get(pending, 0, remaining);
+            length += remaining;
+            pendingLength = remaining;
+        }
+
+        @Override
+        public void putByte(byte value) {
+            checkNotDone();
+            length++;
+            pending[pendingLength++] = value;
+            if (pendingLength == BLOCK_SIZE) {
+                mixBlock(readLong(pending, 0), readLong(pending, 8));
+                pendingLength = 0;
+            }
+        }
+
+        @Override
+        public void putInt(int value) {
+            putByte((byte) value);
+            putByte((byte) (value >>> 8));
+            putByte((byte) (value >>> 16));
+            putByte((byte) (value >>> 24));
+        }
+
+        @Override
+        public void putLong(long value) {
+            putInt((int) value);
+            putInt((int) (value >>> 32));
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            hashCode.appendToHasher(this);
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            if (pendingLength > 0) {
+                long k1 = 0;
+                long k2 = 0;
+                for (int i = Math.min(pendingLength, 8) - 1; i >= 0; i--) {
+                    k1 = (k1 << 8) | (pending[i] & 0xFFL);
+                }
+                for (int i = pendingLength - 1; i >= 8; i--) {
+                    k2 = (k2 << 8) | (pending[i] & 0xFFL);
+                }
+                h1 ^= mixK1(k1);
+                h2 ^= mixK2(k2);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+
+            h1 += h2;
+            h2 += h1;
+
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+
+            h1 += h2;
+            h2 += h1;
+
+            return new HashCode.HashCode128(h1, h2);
+        }
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher!");
+            }
+        }
+
+        private void mixBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        private static long readLong(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xFFL)
+                | ((bytes[offset + 1] & 0xFFL) << 8)
+                | ((bytes[offset + 2] & 0xFFL) << 16)
+                | ((bytes[offset + 3] & 0xFFL) << 24)
+                | ((bytes[offset + 4] & 0xFFL) << 32)
+                | ((bytes[offset + 5] & 0xFFL) << 40)
+                | ((bytes[offset + 6] & 0xFFL) << 48)
+                | ((bytes[offset + 7] & 0xFFL) << 56);
+        }
+    }
+}
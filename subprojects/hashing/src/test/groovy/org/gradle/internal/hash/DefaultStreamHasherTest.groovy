@@ -36,4 +36,28 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "hashes file input the same as other input"() {
+        given:
+        def file = File.createTempFile("input", ".bin")
+        file.deleteOnExit()
+        def bytes = new byte[200000]
+        new Random(1234L).nextBytes(bytes)
+        file.bytes = bytes
+        def hasher = new DefaultStreamHasher(hashFunction)
+
+        expect:
+        new FileInputStream(file).withCloseable { hasher.hash(it) } == hasher.hash(new ByteArrayInputStream(bytes))
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3()]
+    }
+
+    def "can hash input with a different hash function"() {
+        def input = new ByteArrayInputStream("hello".bytes)
+        when:
+        def hash = new DefaultStreamHasher(Hashing.murmur3()).hash(input)
+        then:
+        hash.toString() == "36e44ebde6f0da7dc1a53de4506f3ffc"
+    }
 }
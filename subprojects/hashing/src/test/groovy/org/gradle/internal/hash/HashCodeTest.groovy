@@ -18,6 +18,8 @@ package org.gradle.internal.hash
 
 import org.gradle.internal.hash.HashCode.ByteArrayBackedHashCode
 import org.gradle.internal.hash.HashCode.HashCode128
+import org.gradle.internal.hash.HashCode.HashCode160
+import org.gradle.internal.hash.HashCode.HashCode256
 import spock.lang.Specification
 
 class HashCodeTest extends Specification {
@@ -39,6 +41,8 @@ class HashCodeTest extends Specification {
         "abbaabbaabba"                     | ByteArrayBackedHashCode | 6      | 0xBAABBAAB | toBytes([0xAB, 0xBA] * 3)
         "aB" * 255                         | ByteArrayBackedHashCode | 255    | 0xABABABAB | toBytes([0xAB] * 255)
         "e5b7d1919156335a9c453a4956bbe775" | HashCode128             | 16     | 0x91D1B7E5 | toBytes([0xE5, 0xB7, 0xD1, 0x91, 0x91, 0x56, 0x33, 0x5A, 0x9C, 0x45, 0x3A, 0x49, 0x56, 0xBB, 0xE7, 0x75])
+        "aB" * 20                          | HashCode160             | 20     | 0xABABABAB | toBytes([0xAB] * 20)
+        "aB" * 32                          | HashCode256             | 32     | 0xABABABAB | toBytes([0xAB] * 32)
     }
 
     def "can parse bytes: #input"() {
@@ -102,6 +106,28 @@ class HashCodeTest extends Specification {
         "f5b7d1919156335a9c453a4956bbe775"   | "e5b7d1919156335a9c453a4956bbe775"   | 1
         "f5b7d1919156335a9c453a4956bbe77512" | "e5b7d1919156335a9c453a4956bbe775"   | 1
         "f5b7d191"                           | "e5b7d1919156335a9c453a4956bbe775"   | 1
+        "00" * 20                            | "00" * 20                            | 0
+        "00" * 20                            | "80" + "00" * 19                     | 1
+        "00" * 19 + "7f"                     | "00" * 19 + "80"                     | 1
+        "00" * 15 + "01" + "00" * 4          | "00" * 16 + "ff" * 4                 | 1
+        "e5b7d1919156335a9c453a4956bbe775"   | "00" * 16 + "ff" * 4                 | -1
+        "00" * 32                            | "00" * 32                            | 0
+        "00" * 32                            | "80" + "00" * 31                     | 1
+        "00" * 31 + "7f"                     | "00" * 31 + "80"                     | 1
+        "00" * 23 + "01" + "00" * 8          | "00" * 24 + "ff" * 8                 | 1
+        "00" * 20                            | "00" * 19 + "01" + "00" * 12         | -1
+    }
+
+    def "#length byte hash code can be created from big-endian longs"() {
+        def bytes = (1..length).collect { (byte) (it * 37) } as byte[]
+        def hash = HashCode.fromBytes(bytes)
+
+        expect:
+        fromLongs(hash) == hash
+        fromLongs(hash).toByteArray() == bytes
+
+        where:
+        length << [16, 20, 32]
     }
 
     def "not equals with null"() {
@@ -184,6 +210,18 @@ class HashCodeTest extends Specification {
         Hashing.md5().hashString("").toZeroPaddedString(40) == "00000000d41d8cd98f00b204e9800998ecf8427e"
     }
 
+    private static HashCode fromLongs(HashCode hash) {
+        switch (hash.length()) {
+            case 16:
+                return HashCode.fromLongs(hash.getLong(0), hash.getLong(8))
+            case 20:
+                return HashCode.fromLongs(hash.getLong(0), hash.getLong(8), hash.getInt(16))
+            case 32:
+                return HashCode.fromLongs(hash.getLong(0), hash.getLong(8), hash.getLong(16), hash.getLong(24))
+        }
+        throw new IllegalArgumentException()
+    }
+
     private static byte[] toBytes(int ... elements) {
         toBytes(elements as List<Integer>)
     }
@@ -18,6 +18,8 @@ package org.gradle.internal.hash
 
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+
 import static java.lang.Thread.currentThread
 import static java.util.concurrent.CompletableFuture.supplyAsync
 import static java.util.concurrent.Executors.newFixedThreadPool
@@ -109,6 +111,36 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 hash function produces same hashes as Guava'() {
+        given:
+        def random = new Random(1234L)
+        def bytes = new byte[length]
+        random.nextBytes(bytes)
+
+        expect:
+        Hashing.murmur3().hashBytes(bytes).toString() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).toString()
+
+        where:
+        length << [0, 1, 7, 8, 15, 16, 17, 31, 32, 33, 1000]
+    }
+
+    def 'murmur3 hasher produces same hash regardless of how bytes are fed'() {
+        given:
+        def random = new Random(1234L)
+        def bytes = new byte[1000]
+        random.nextBytes(bytes)
+
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putByte(bytes[0])
+        hasher.putBytes(bytes, 1, 20)
+        hasher.putBytes(ByteBuffer.wrap(bytes, 21, 500))
+        hasher.putBytes(ByteBuffer.allocateDirect(479).put(bytes, 521, 479).flip() as ByteBuffer)
+
+        then:
+        hasher.hash() == Hashing.murmur3().hashBytes(bytes)
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
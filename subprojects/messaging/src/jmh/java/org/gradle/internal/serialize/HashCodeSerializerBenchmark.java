@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize;
+
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures creating and serializing hash codes of the lengths used for fingerprints (MD5), SHA-1 and SHA-256 checksums.
+ *
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} of {@link #fromBytes()} approximates the heap used by {@value #HASH_COUNT} hash codes,
+ * and for the serialization benchmarks shows the intermediate arrays avoided by the fast paths.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class HashCodeSerializerBenchmark {
+    private static final int HASH_COUNT = 1000;
+
+    @Param({"16", "20", "32"})
+    int length;
+
+    private final HashCodeSerializer serializer = new HashCodeSerializer();
+    private byte[][] bytes;
+    private HashCode[] hashes;
+    private byte[] serialized;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(1234L);
+        bytes = new byte[HASH_COUNT][];
+        hashes = new HashCode[HASH_COUNT];
+        for (int i = 0; i < HASH_COUNT; i++) {
+            bytes[i] = new byte[length];
+            random.nextBytes(bytes[i]);
+            hashes[i] = HashCode.fromBytes(bytes[i]);
+        }
+        output = new ByteArrayOutputStream(HASH_COUNT * (length + 1));
+        serialized = write();
+    }
+
+    @Benchmark
+    public HashCode[] fromBytes() {
+        HashCode[] result = new HashCode[HASH_COUNT];
+        for (int i = 0; i < HASH_COUNT; i++) {
+            result[i] = HashCode.fromBytes(bytes[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        output.reset();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(output);
+        for (HashCode hash : hashes) {
+            serializer.write(encoder, hash);
+        }
+        encoder.flush();
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public HashCode[] read() throws IOException {
+        HashCode[] result = new HashCode[HASH_COUNT];
+        KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(serialized));
+        for (int i = 0; i < HASH_COUNT; i++) {
+            result[i] = serializer.read(decoder);
+        }
+        return result;
+    }
+}
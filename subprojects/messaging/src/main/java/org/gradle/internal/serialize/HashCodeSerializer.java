@@ -20,19 +20,51 @@
 
 import java.io.IOException;
 
+/**
+ * Serializes a hash code as its length followed by its bytes.
+ *
+ * Hash codes of the common lengths are read and written as longs, so no intermediate byte array is needed.
+ */
 public class HashCodeSerializer extends AbstractSerializer<HashCode> {
     @Override
     public HashCode read(Decoder decoder) throws IOException {
         byte hashSize = decoder.readByte();
-        byte[] hash = new byte[hashSize];
-        decoder.readBytes(hash);
-        return HashCode.fromBytes(hash);
+        switch (hashSize) {
+            case 16:
+                return HashCode.fromLongs(decoder.readLong(), decoder.readLong());
+            case 20:
+                return HashCode.fromLongs(decoder.readLong(), decoder.readLong(), decoder.readInt());
+            case 32:
+                return HashCode.fromLongs(decoder.readLong(), decoder.readLong(), decoder.readLong(), decoder.readLong());
+            default:
+                byte[] hash = new byte[hashSize];
+                decoder.readBytes(hash);
+                return HashCode.fromBytes(hash);
+        }
     }
 
     @Override
     public void write(Encoder encoder, HashCode value) throws IOException {
-        byte[] hash = value.toByteArray();
-        encoder.writeByte((byte) hash.length);
-        encoder.writeBytes(hash);
+        int hashSize = value.length();
+        encoder.writeByte((byte) hashSize);
+        switch (hashSize) {
+            case 16:
+                encoder.writeLong(value.getLong(0));
+                encoder.writeLong(value.getLong(8));
+                break;
+            case 20:
+                encoder.writeLong(value.getLong(0));
+                encoder.writeLong(value.getLong(8));
+                encoder.writeInt(value.getInt(16));
+                break;
+            case 32:
+                encoder.writeLong(value.getLong(0));
+                encoder.writeLong(value.getLong(8));
+                encoder.writeLong(value.getLong(16));
+                encoder.writeLong(value.getLong(24));
+                break;
+            default:
+                encoder.writeBytes(value.toByteArray());
+        }
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize
+
+import org.gradle.internal.hash.HashCode
+
+class HashCodeSerializerTest extends SerializerSpec {
+    def serializer = new HashCodeSerializer()
+
+    def "serializes #length byte hash code as its length followed by its bytes"() {
+        def bytes = (1..length).collect { (byte) (it * 37) } as byte[]
+        def hash = HashCode.fromBytes(bytes)
+
+        when:
+        def serialized = toBytes(hash, serializer)
+
+        then:
+        serialized[0] == (byte) length
+        serialized[1..-1] as byte[] == bytes
+
+        and:
+        def deserialized = fromBytes(serialized, serializer)
+        deserialized == hash
+        deserialized.getClass() == hash.getClass()
+
+        where:
+        length << [4, 16, 20, 32, 64]
+    }
+}
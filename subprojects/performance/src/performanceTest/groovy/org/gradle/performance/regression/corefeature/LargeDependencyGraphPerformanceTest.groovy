@@ -31,6 +31,7 @@ class LargeDependencyGraphPerformanceTest extends AbstractCrossVersionPerformanc
 
     public static final String MIN_MEMORY = "-Xms800m"
     public static final String MAX_MEMORY = "-Xmx800m"
+    public static final String SMALL_MEMORY = "400m"
 
     def setup() {
         runner.minimumBaseVersion = '5.6.4'
@@ -50,6 +51,20 @@ class LargeDependencyGraphPerformanceTest extends AbstractCrossVersionPerformanc
         result.assertCurrentVersionHasNotRegressed()
     }
 
+    def "resolve large dependency graph from file repo with small heap"() {
+        given:
+        runner.tasksToRun = ['resolveDependencies']
+        // Allocation during resolution shows up as garbage collection time with a heap this small
+        runner.gradleOpts = ["-Xms${SMALL_MEMORY}", "-Xmx${SMALL_MEMORY}"]
+        runner.args = ["-PnoExcludes"]
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+
     def "resolve large dependency graph (parallel = #parallel, locking = #locking)"() {
         startServer()
 
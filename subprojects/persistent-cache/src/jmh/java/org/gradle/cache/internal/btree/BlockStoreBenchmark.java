@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares reading and writing entries of a {@link BTreePersistentIndexedCache} backed by a {@link FileBackedBlockStore} with one backed by a {@link MappedBlockStore}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private static final int ENTRY_COUNT = 100000;
+
+    @Param({"file", "mapped"})
+    String store;
+
+    @Param({"32", "1024"})
+    int valueSize;
+
+    File cacheDir;
+    BTreePersistentIndexedCache<Long, byte[]> cache;
+    Random random = new Random(1234L);
+    byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheDir = Files.createTempDirectory("block-store").toFile();
+        cache = createCache(new File(cacheDir, "cache.bin"));
+        value = new byte[valueSize];
+        random.nextBytes(value);
+        for (long key = 0; key < ENTRY_COUNT; key++) {
+            cache.put(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.close();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    public void readEntry(Blackhole blackhole) {
+        blackhole.consume(cache.get((long) random.nextInt(ENTRY_COUNT)));
+    }
+
+    @Benchmark
+    public void updateEntry() {
+        cache.put((long) random.nextInt(ENTRY_COUNT), value);
+    }
+
+    private BTreePersistentIndexedCache<Long, byte[]> createCache(File cacheFile) {
+        BlockStore backingStore = store.equals("mapped") ? new MappedBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<Long, byte[]>(cacheFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, (short) 512, 512, backingStore);
+    }
+}
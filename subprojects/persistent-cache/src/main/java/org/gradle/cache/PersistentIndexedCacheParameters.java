@@ -27,24 +27,26 @@
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private final CacheDecorator cacheDecorator;
+    private final boolean memoryMapped;
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, null, false);
     }
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Class<K> keyType, Serializer<V> valueSerializer) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), valueSerializer, null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), valueSerializer, null, false);
     }
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Class<K> keyType, Class<V> valueType) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), SERIALIZER_FACTORY.getSerializerFor(valueType), null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), SERIALIZER_FACTORY.getSerializerFor(valueType), null, false);
     }
 
-    private PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, @Nullable CacheDecorator cacheDecorator) {
+    private PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, @Nullable CacheDecorator cacheDecorator, boolean memoryMapped) {
         this.cacheName = cacheName;
         this.keySerializer = keySerializer;
         this.valueSerializer = valueSerializer;
         this.cacheDecorator = cacheDecorator;
+        this.memoryMapped = memoryMapped;
     }
 
     public String getCacheName() {
@@ -65,6 +67,21 @@ public CacheDecorator getCacheDecorator() {
     }
 
     public PersistentIndexedCacheParameters<K, V> withCacheDecorator(CacheDecorator cacheDecorator) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator, memoryMapped);
+    }
+
+    /**
+     * Whether the backing file of the cache is accessed through memory mapped segments.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Accesses the backing file of the cache through memory mapped segments, rather than by seeking and reading the file.
+     * This avoids a system call per block read, which helps caches with a high rate of lookups.
+     */
+    public PersistentIndexedCacheParameters<K, V> withMemoryMappedStore() {
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator, true);
     }
 }
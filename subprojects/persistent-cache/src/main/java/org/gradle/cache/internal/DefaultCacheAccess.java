@@ -31,6 +31,7 @@
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.MappedBlockStore;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
@@ -282,7 +283,9 @@ public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final Persis
             if (entry == null) {
                 File cacheFile = findCacheFile(parameters);
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = () -> doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = parameters.isMemoryMapped()
+                    ? () -> doCreateMemoryMappedCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer())
+                    : () -> doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
 
                 MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
                 CacheDecorator decorator = parameters.getCacheDecorator();
@@ -319,6 +322,10 @@ <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serialize
         return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
     }
 
+    <K, V> BTreePersistentIndexedCache<K, V> doCreateMemoryMappedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer, (short) 512, 512, new MappedBlockStore(cacheFile));
+    }
+
     /**
      * Called just after the file lock has been acquired.
      */
@@ -482,6 +489,7 @@ void assertCompatibleCacheParameters(PersistentIndexedCacheParameters<K, V> para
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleMemoryMapping(faultMessages, parameters.isMemoryMapped());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -524,6 +532,14 @@ private void checkCompatibleCacheDecorator(Collection<String> faultMessages, Cac
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleMemoryMapping(Collection<String> faultMessages, boolean memoryMapped) {
+            if (memoryMapped != parameters.isMemoryMapped()) {
+                faultMessages.add(
+                    String.format(" * Requested memory mapping (%s) doesn't match current memory mapping (%s)",
+                        memoryMapped, parameters.isMemoryMapped()));
+            }
+        }
     }
 
     @VisibleForTesting
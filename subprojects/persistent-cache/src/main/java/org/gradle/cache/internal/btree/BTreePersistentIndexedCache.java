@@ -63,12 +63,20 @@ public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer,
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, new FileBackedBlockStore(cacheFile));
+    }
+
+    /**
+     * Creates a cache that uses the given store to read and write the blocks of the cache file.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, BlockStore backingStore) {
         this.cacheFile = cacheFile;
         this.keyHasher = new KeyHasher<K>(keySerializer);
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), ImmutableSet.of(IndexBlock.class, FreeListBlockStore.FreeListBlock.class));
+        BlockStore cachingStore = new CachingBlockStore(backingStore, ImmutableSet.of(IndexBlock.class, FreeListBlockStore.FreeListBlock.class));
         this.store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory mapped segments of the backing file, rather than
+ * through seek-and-read calls on a {@link RandomAccessFile}.
+ *
+ * <p>The file format is the same as the one used by {@link FileBackedBlockStore}. Like that store, this store is not thread-safe:
+ * access is serialized by the lock of the cache that uses it.</p>
+ *
+ * <p>Mapped segments extend the backing file to a multiple of the segment size while the store is open. The segments are unmapped
+ * and the file is truncated to the end of the last block when the store is closed or cleared. When the store was not closed,
+ * e.g. because the process was killed, the end of the last block is found by walking the blocks when the store is opened again.</p>
+ */
+public class MappedBlockStore implements BlockStore {
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    private static final MappedByteBuffer[] NO_SEGMENTS = new MappedByteBuffer[0];
+
+    private final File cacheFile;
+    private final int segmentSize;
+    private final int segmentShift;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private boolean readOnly;
+    private MappedByteBuffer[] segments = NO_SEGMENTS;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+
+    public MappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedBlockStore(File cacheFile, int segmentSize) {
+        if (segmentSize <= 0 || Integer.bitCount(segmentSize) != 1) {
+            throw new IllegalArgumentException("Segment size must be a power of two, but was " + segmentSize);
+        }
+        this.cacheFile = cacheFile;
+        this.segmentSize = segmentSize;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    @Override
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = openRandomAccessFile();
+            channel = file.getChannel();
+            segments = NO_SEGMENTS;
+            currentFileSize = file.length();
+            if (currentFileSize > 0 && currentFileSize % segmentSize == 0) {
+                // The file may still be padded up to the end of the last mapped segment
+                currentFileSize = findEndOfBlocks(currentFileSize);
+                truncate(currentFileSize);
+            }
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the end of the last block, by following the sizes in the block headers from the start of the file.
+     * Blocks never have type 0, so a zero type is where the padding starts.
+     */
+    private long findEndOfBlocks(long length) throws IOException {
+        byte[] header = new byte[BlockImpl.HEADER_SIZE];
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        long pos = 0;
+        while (pos + BlockImpl.HEADER_SIZE <= length) {
+            readBytes(pos, header, 0, BlockImpl.HEADER_SIZE);
+            if (header[0] == 0) {
+                break;
+            }
+            int payloadSize = headerBuffer.getInt(1);
+            long end = pos + BlockImpl.HEADER_SIZE + payloadSize + BlockImpl.TAIL_SIZE;
+            if (payloadSize < 0 || end > length) {
+                break;
+            }
+            pos = end;
+        }
+        return pos;
+    }
+
+    private RandomAccessFile openRandomAccessFile() throws FileNotFoundException {
+        try {
+            readOnly = false;
+            return new RandomAccessFile(cacheFile, "rw");
+        } catch (FileNotFoundException e) {
+            readOnly = true;
+            return new RandomAccessFile(cacheFile, "r");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            try {
+                truncate(nextBlock);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        currentFileSize = 0;
+        nextBlock = 0;
+    }
+
+    /**
+     * Unmaps all segments and removes the unused space at the end of the file, which the segments may have added.
+     * The segments have to be unmapped first, since a mapped file cannot be truncated on some platforms.
+     */
+    private void truncate(long length) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        segments = NO_SEGMENTS;
+        for (MappedByteBuffer segment : mapped) {
+            if (segment != null) {
+                Unmapper.unmap(segment);
+            }
+        }
+        if (!readOnly && channel.size() > length) {
+            channel.truncate(length);
+        }
+    }
+
+    @Override
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    @Override
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    @Override
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private void readBytes(long pos, byte[] dest, int offset, int length) throws IOException {
+        while (length > 0) {
+            int index = (int) (pos >>> segmentShift);
+            int segmentOffset = (int) (pos & (segmentSize - 1));
+            int count = Math.min(length, segmentSize - segmentOffset);
+            ByteBuffer segment = segment(index).duplicate();
+            segment.position(segmentOffset);
+            segment.get(dest, offset, count);
+            pos += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void writeBytes(long pos, byte[] source, int offset, int length) throws IOException {
+        if (readOnly) {
+            throw new IOException(String.format("Cannot write to read-only %s.", this));
+        }
+        while (length > 0) {
+            int index = (int) (pos >>> segmentShift);
+            int segmentOffset = (int) (pos & (segmentSize - 1));
+            int count = Math.min(length, segmentSize - segmentOffset);
+            ByteBuffer segment = segment(index).duplicate();
+            segment.position(segmentOffset);
+            segment.put(source, offset, count);
+            pos += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        if (index < segments.length && segments[index] != null) {
+            return segments[index];
+        }
+        if (index >= segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(index + 1, segments.length * 2));
+        }
+        long start = (long) index << segmentShift;
+        MappedByteBuffer segment;
+        if (readOnly) {
+            long size = Math.min(segmentSize, channel.size() - start);
+            if (size <= 0) {
+                throw new IOException(String.format("Cannot read beyond the end of %s.", this));
+            }
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } else {
+            // Maps the complete segment, which grows the file when required
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize);
+        }
+        segments[index] = segment;
+        return segment;
+    }
+
+    /**
+     * Releases mapped segments right away, rather than when they are garbage collected. A file cannot be deleted on Windows while it is mapped.
+     */
+    private static class Unmapper {
+        private static final Method INVOKE_CLEANER;
+        private static final Object UNSAFE;
+
+        static {
+            Method invokeCleaner = null;
+            Object unsafe = null;
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+            } catch (Exception e) {
+                invokeCleaner = null;
+            }
+            INVOKE_CLEANER = invokeCleaner;
+            UNSAFE = unsafe;
+        }
+
+        static void unmap(MappedByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } else {
+                    // Java 8
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            } catch (Exception e) {
+                // The segment is released when it is garbage collected
+            }
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        @Override
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + TAIL_SIZE + Math.max(payloadSize, 0));
+            DataOutputStream outputStream = new DataOutputStream(bytes);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = outputStream.size();
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+
+            writeBytes(pos, bytes.toByteArray(), 0, bytes.size());
+
+            if (currentFileSize < finalSize) {
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            byte[] header = new byte[HEADER_SIZE];
+            readBytes(pos, header, 0, HEADER_SIZE);
+            DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(header));
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = headerStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = headerStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            byte[] body = new byte[payloadSize + TAIL_SIZE];
+            readBytes(pos + HEADER_SIZE, body, 0, body.length);
+            ByteArrayInputStream bodyBytes = new ByteArrayInputStream(body);
+            DataInputStream inputStream = new DataInputStream(bodyBytes);
+            long actualCount;
+            long count;
+            try {
+                payload.read(inputStream);
+
+                // Read and verify count
+                actualCount = HEADER_SIZE + body.length - bodyBytes.available();
+                count = inputStream.readInt();
+            } catch (EOFException e) {
+                throw blockCorruptedException();
+            }
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        @Override
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedBlockStore.this));
+        }
+    }
+}
@@ -697,6 +697,20 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         access?.close()
     }
 
+    def "throws InvalidCacheReuseException when memory mapping differs"() {
+        def access = newAccess(OnDemand)
+
+        when:
+        access.newCache(PersistentIndexedCacheParameters.of('cache', String.class, Integer.class))
+        access.newCache(PersistentIndexedCacheParameters.of('cache', String.class, Integer.class).withMemoryMappedStore())
+
+        then:
+        thrown(DefaultCacheAccess.InvalidCacheReuseException)
+
+        cleanup:
+        access?.close()
+    }
+
     def "throws InvalidCacheReuseException when cache decorator differs"() {
         def access = newAccess(OnDemand)
         def decorator = Mock(CacheDecorator)
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedBlockStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    TestFile cacheFile
+
+    def setup() {
+        cacheFile = tmpDir.file("cache.bin")
+    }
+
+    def "can add, update and remove entries spanning multiple segments"() {
+        given:
+        def cache = mappedCache()
+
+        when:
+        (0..<500).each { cache.put("key$it", value(it)) }
+        (0..<500).step(3) { cache.remove("key$it") }
+        (0..<500).step(5) { cache.put("key$it", value(it + 1000)) }
+        cache.verify()
+
+        then:
+        (0..<500).every { cache.get("key$it") == expected(it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "entries written through mapped store can be read back after reopening"() {
+        given:
+        def cache = mappedCache()
+        (0..<200).each { cache.put("key$it", value(it)) }
+        cache.close()
+
+        when:
+        cache = mappedCache()
+
+        then:
+        (0..<200).every { cache.get("key$it") == value(it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "uses the same file format as file backed store"() {
+        given:
+        def cache = mappedCache()
+        (0..<200).each { cache.put("key$it", value(it)) }
+        cache.close()
+
+        when:
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100)
+        (200..<300).each { cache.put("key$it", value(it)) }
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<300).every { cache.get("key$it") == value(it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "can reset cache"() {
+        given:
+        def cache = mappedCache()
+        (0..<100).each { cache.put("key$it", value(it)) }
+
+        when:
+        cache.reset()
+
+        then:
+        (0..<100).every { cache.get("key$it") == value(it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "cleared entries are not read back after reopening"() {
+        given:
+        def cache = mappedCache()
+        (0..<100).each { cache.put("key$it", value(it)) }
+
+        when:
+        cache.clear()
+        cache.put("other", "value")
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<100).every { cache.get("key$it") == null }
+        cache.get("other") == "value"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "truncates unused space at the end of the file on close"() {
+        given:
+        def cache = mappedCache(64 * 1024)
+        cache.put("key", "value")
+        cache.close()
+        def initialLength = cacheFile.length()
+
+        when:
+        10.times {
+            cache = mappedCache(64 * 1024)
+            cache.put("key$it", "value")
+            cache.close()
+        }
+
+        then:
+        initialLength < 64 * 1024
+        cacheFile.length() < 64 * 1024
+        cacheFile.length() > initialLength
+
+        when:
+        cache = mappedCache(64 * 1024)
+
+        then:
+        (0..<10).every { cache.get("key$it") == "value" }
+        cache.get("key") == "value"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "removes the padding of a store that was not closed when reopening it"() {
+        given:
+        def cache = mappedCache(1024)
+        (0..<20).each { cache.put("key$it", value(it)) }
+        cache.close()
+        def initialLength = cacheFile.length()
+
+        when:
+        10.times {
+            // The file of a store that was not closed is still padded up to the end of its last segment
+            def paddedLength = padToSegment(1024)
+            cache = mappedCache(1024)
+            cache.put("other$it", "value")
+            cache.close()
+            assert cacheFile.length() < paddedLength
+        }
+
+        then:
+        cacheFile.length() < initialLength + 1024
+
+        when:
+        cache = mappedCache(1024)
+
+        then:
+        (0..<20).every { cache.get("key$it") == value(it) }
+        (0..<10).every { cache.get("other$it") == "value" }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "can delete the file after closing"() {
+        given:
+        def cache = mappedCache()
+        (0..<100).each { cache.put("key$it", value(it)) }
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.delete()
+    }
+
+    def "segment size must be a power of two"() {
+        when:
+        new MappedBlockStore(cacheFile, 1000)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Segment size must be a power of two, but was 1000"
+    }
+
+    private BTreePersistentIndexedCache<String, String> mappedCache(int segmentSize = 1024) {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100, new MappedBlockStore(cacheFile, segmentSize))
+    }
+
+    private long padToSegment(int segmentSize) {
+        def file = new RandomAccessFile(cacheFile, "rw")
+        try {
+            def paddedLength = (file.length().intdiv(segmentSize) + 1) * segmentSize
+            file.setLength(paddedLength)
+            return paddedLength
+        } finally {
+            file.close()
+        }
+    }
+
+    private static String value(int index) {
+        return "value $index " + ("x" * (index % 300))
+    }
+
+    private static String expected(int index) {
+        if (index % 3 == 0) {
+            return index % 5 == 0 ? value(index + 1000) : null
+        }
+        return index % 5 == 0 ? value(index + 1000) : value(index)
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl;
+
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.snapshot.CaseSensitivity;
+import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
+
+/**
+ * Measures the memory needed to keep snapshots in the virtual file system.
+ *
+ * Each invocation builds and stores a snapshot tree, and reports the heap it retains per file as {@code retainedBytesPerFile}.
+ * The retained heap is the difference in used heap after a full GC, with and without the tree being reachable,
+ * so objects that are only needed while building the tree are not counted.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class SnapshotHierarchyBenchmark {
+    private static final String ROOT = "/home/user/checkout";
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @Param({"100"})
+    int directoryCount;
+
+    @Param({"100"})
+    int filesPerDirectory;
+
+    private HashCode[] hashes;
+    // Keeps the hierarchy reachable while measuring, and only that hierarchy
+    private SnapshotHierarchy hierarchy;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1234L);
+        hashes = new HashCode[filesPerDirectory];
+        for (int i = 0; i < hashes.length; i++) {
+            byte[] bytes = new byte[16];
+            random.nextBytes(bytes);
+            hashes[i] = HashCode.fromBytes(bytes);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RetainedHeap {
+        public long retainedBytesPerFile;
+    }
+
+    @Benchmark
+    public void storeDirectoryTree(RetainedHeap retainedHeap) {
+        hierarchy = buildDirectoryTree();
+        long usedWithHierarchy = usedHeapAfterGc();
+        hierarchy = null;
+        long usedWithoutHierarchy = usedHeapAfterGc();
+        retainedHeap.retainedBytesPerFile = (usedWithHierarchy - usedWithoutHierarchy) / ((long) directoryCount * filesPerDirectory);
+    }
+
+    private SnapshotHierarchy buildDirectoryTree() {
+        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+        builder.enterDirectory(AccessType.DIRECT, ROOT, "checkout", INCLUDE_EMPTY_DIRS);
+        for (int directory = 0; directory < directoryCount; directory++) {
+            String directoryName = "dir" + directory;
+            String directoryPath = ROOT + "/" + directoryName;
+            builder.enterDirectory(AccessType.DIRECT, directoryPath, directoryName, INCLUDE_EMPTY_DIRS);
+            for (int file = 0; file < filesPerDirectory; file++) {
+                String fileName = "File" + file + ".java";
+                builder.visitLeafElement(new RegularFileSnapshot(
+                    directoryPath + "/" + fileName,
+                    fileName,
+                    hashes[file],
+                    DefaultFileMetadata.file(file, 1024 + file, AccessType.DIRECT)
+                ));
+            }
+            builder.leaveDirectory();
+        }
+        builder.leaveDirectory();
+        FileSystemLocationSnapshot root = builder.getResult();
+        return DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE)
+            .store(ROOT, root, SnapshotHierarchy.NodeDiffListener.NOOP);
+    }
+
+    private static long usedHeapAfterGc() {
+        // A single GC may not collect everything that is unreachable
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -48,22 +48,36 @@
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
 
 /**
  * For creating {@link DirectorySnapshot}s of directories.
+ *
+ * <p>When a parallel hashing threshold is configured, the files of a directory tree beyond the threshold are hashed concurrently on the given executor.
+ * The walk itself stays single threaded, and all updates to the snapshot builder are replayed in walk order once the hashes are available,
+ * so the resulting snapshot is the same as the one created without parallel hashing.</p>
  */
 public class DirectorySnapshotter {
+    /**
+     * Threshold which disables parallel hashing.
+     */
+    public static final int NO_PARALLEL_HASHING = Integer.MAX_VALUE;
+
     private static final EnumSet<FileVisitOption> DONT_FOLLOW_SYMLINKS = EnumSet.noneOf(FileVisitOption.class);
     private static final SymbolicLinkMapping EMPTY_SYMBOLIC_LINK_MAPPING = new SymbolicLinkMapping() {
 
@@ -87,12 +101,30 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final Executor hashingExecutor;
+    private final int parallelHashingThreshold;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, Runnable::run, NO_PARALLEL_HASHING);
+    }
+
+    /**
+     * Creates a snapshotter which hashes the files of a directory tree on the given executor once more than {@code parallelHashingThreshold} files have been visited.
+     */
+    public DirectorySnapshotter(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        Collection<String> defaultExcludes,
+        DirectorySnapshotterStatistics.Collector collector,
+        Executor hashingExecutor,
+        int parallelHashingThreshold
+    ) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.hashingExecutor = hashingExecutor;
+        this.parallelHashingThreshold = parallelHashingThreshold;
     }
 
     /**
@@ -113,13 +145,57 @@ public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner,
      * @return The (possible filtered) snapshot of the directory.
      */
     public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered, Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
+        ParallelHashing parallelHashing = parallelHashing();
         try {
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer);
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer, parallelHashing);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             return visitor.getResult();
         } catch (IOException e) {
             throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", absolutePath), e);
+        } finally {
+            if (parallelHashing != null) {
+                // Do not hash any more files when the walk failed
+                parallelHashing.cancelUnfinished();
+            }
+        }
+    }
+
+    @Nullable
+    private ParallelHashing parallelHashing() {
+        return parallelHashingThreshold == NO_PARALLEL_HASHING
+            ? null
+            : new ParallelHashing(hashingExecutor, parallelHashingThreshold);
+    }
+
+    /**
+     * Tracks the files hashed during one snapshot, including the snapshots of followed symlinks.
+     */
+    private static class ParallelHashing {
+        private final Executor executor;
+        private final int threshold;
+        private final List<CompletableFuture<?>> hashes = new ArrayList<>();
+        private int visitedFiles;
+
+        public ParallelHashing(Executor executor, int threshold) {
+            this.executor = executor;
+            this.threshold = threshold;
+        }
+
+        public boolean shouldHashInParallel() {
+            return ++visitedFiles > threshold;
+        }
+
+        public <T> CompletableFuture<T> hash(Supplier<T> hasher) {
+            CompletableFuture<T> hash = CompletableFuture.supplyAsync(hasher, executor);
+            hashes.add(hash);
+            return hash;
+        }
+
+        public void cancelUnfinished() {
+            for (CompletableFuture<?> hash : hashes) {
+                hash.cancel(false);
+            }
         }
     }
 
@@ -252,6 +328,8 @@ private static class PathVisitor extends DirectorySnapshotterStatistics.Collecti
         private final Deque<String> parentDirectories = new ArrayDeque<>();
         private final Set<FileSystemLocationSnapshot> filteredDirectorySnapshots = new HashSet<>();
         private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer;
+        private final ParallelHashing parallelHashing;
+        private final List<Runnable> deferredBuilderActions = new ArrayList<>();
 
         public PathVisitor(
             @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
@@ -261,7 +339,8 @@ public PathVisitor(
             DefaultExcludes defaultExcludes,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
             SymbolicLinkMapping symbolicLinkMapping,
-            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer
+            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer,
+            @Nullable ParallelHashing parallelHashing
         ) {
             super(statisticsCollector);
             this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::consumeUnfilteredSnapshot);
@@ -272,6 +351,19 @@ public PathVisitor(
             this.defaultExcludes = defaultExcludes;
             this.symbolicLinkMapping = symbolicLinkMapping;
             this.unfilteredSnapshotConsumer = unfilteredSnapshotConsumer;
+            this.parallelHashing = parallelHashing;
+        }
+
+        /**
+         * Applies the given action to the builder. Once files are hashed in parallel, the action is deferred until all hashes are available,
+         * so the builder sees the same sequence of calls as without parallel hashing.
+         */
+        private void updateBuilder(Runnable action) {
+            if (deferredBuilderActions.isEmpty()) {
+                action.run();
+            } else {
+                deferredBuilderActions.add(action);
+            }
         }
 
         private void consumeUnfilteredSnapshot(FileSystemLocationSnapshot snapshot) {
@@ -289,7 +381,8 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
             String fileName = getInternedFileName(dir);
             pathTracker.enter(fileName);
             if (shouldVisitDirectory(dir, fileName)) {
-                builder.enterDirectory(AccessType.DIRECT, intern(symbolicLinkMapping.remapAbsolutePath(dir)), fileName, INCLUDE_EMPTY_DIRS);
+                String internedAbsolutePath = intern(symbolicLinkMapping.remapAbsolutePath(dir));
+                updateBuilder(() -> builder.enterDirectory(AccessType.DIRECT, internedAbsolutePath, fileName, INCLUDE_EMPTY_DIRS));
                 parentDirectories.addFirst(dir.toString());
                 return FileVisitResult.CONTINUE;
             } else {
@@ -307,11 +400,13 @@ protected FileVisitResult doPostVisitDirectory(Path dir, IOException exc) {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
-            boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
-            FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
-            if (!currentLevelComplete) {
-                filteredDirectorySnapshots.add(currentLevel);
-            }
+            updateBuilder(() -> {
+                boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
+                FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
+                if (!currentLevelComplete) {
+                    filteredDirectorySnapshots.add(currentLevel);
+                }
+            });
             parentDirectories.removeFirst();
             return FileVisitResult.CONTINUE;
         }
@@ -334,11 +429,15 @@ protected FileVisitResult doVisitFile(Path file, BasicFileAttributes attrs) {
                                 targetSnapshot.getHash(),
                                 targetSnapshot.getChildren()
                             );
-                            builder.visitDirectory(directorySnapshotAccessedViaSymlink);
                             boolean symlinkFiltered = symlinkHasBeenFiltered.get();
+                            updateBuilder(() -> {
+                                builder.visitDirectory(directorySnapshotAccessedViaSymlink);
+                                if (symlinkFiltered) {
+                                    filteredDirectorySnapshots.add(directorySnapshotAccessedViaSymlink);
+                                    builder.markCurrentLevelAsFiltered();
+                                }
+                            });
                             if (symlinkFiltered) {
-                                filteredDirectorySnapshots.add(directorySnapshotAccessedViaSymlink);
-                                builder.markCurrentLevelAsFiltered();
                                 hasBeenFiltered.set(true);
                             }
                         }
@@ -368,7 +467,8 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         defaultExcludes,
                         collector,
                         symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
-                        unfilteredSnapshotConsumer);
+                        unfilteredSnapshotConsumer,
+                        parallelHashing);
                     Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
@@ -386,7 +486,13 @@ private boolean introducesCycle(String targetDirString) {
         private void visitResolvedFile(Path file, BasicFileAttributes targetAttributes, AccessType accessType) {
             String internedName = intern(file.getFileName().toString());
             if (shouldVisitFile(file, internedName)) {
-                builder.visitLeafElement(snapshotFile(file, internedName, targetAttributes, accessType));
+                if (parallelHashing != null && targetAttributes.isRegularFile() && parallelHashing.shouldHashInParallel()) {
+                    CompletableFuture<FileSystemLeafSnapshot> snapshot = parallelHashing.hash(() -> snapshotFile(file, internedName, targetAttributes, accessType));
+                    deferredBuilderActions.add(() -> builder.visitLeafElement(await(snapshot)));
+                } else {
+                    FileSystemLeafSnapshot snapshot = snapshotFile(file, internedName, targetAttributes, accessType);
+                    updateBuilder(() -> builder.visitLeafElement(snapshot));
+                }
             }
         }
 
@@ -470,7 +576,7 @@ private boolean shouldVisit(Path path, String internedName, boolean isDirectory)
             }
             boolean allowed = predicate.test(path, internedName, isDirectory, symbolicLinkMapping.getRemappedSegments(pathTracker.getSegments()));
             if (!allowed) {
-                builder.markCurrentLevelAsFiltered();
+                updateBuilder(builder::markCurrentLevelAsFiltered);
                 hasBeenFiltered.set(true);
             }
             return allowed;
@@ -482,7 +588,26 @@ private String getInternedFileName(Path dir) {
         }
 
         public FileSystemLocationSnapshot getResult() {
+            for (Runnable action : deferredBuilderActions) {
+                action.run();
+            }
+            deferredBuilderActions.clear();
             return builder.getResult();
         }
+
+        private static FileSystemLeafSnapshot await(CompletableFuture<FileSystemLeafSnapshot> snapshot) {
+            try {
+                return snapshot.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
     }
 }
@@ -40,6 +40,7 @@
 
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
@@ -54,6 +55,8 @@ public class DefaultFileSystemAccess implements FileSystemAccess {
     private final Interner<String> stringInterner;
     private final WriteListener writeListener;
     private final DirectorySnapshotterStatistics.Collector statisticsCollector;
+    private final Executor hashingExecutor;
+    private final int parallelHashingThreshold;
     private ImmutableList<String> defaultExcludes;
     private DirectorySnapshotter directorySnapshotter;
     private final FileHasher hasher;
@@ -67,13 +70,29 @@ public DefaultFileSystemAccess(
         WriteListener writeListener,
         DirectorySnapshotterStatistics.Collector statisticsCollector,
         String... defaultExcludes
+    ) {
+        this(hasher, stringInterner, stat, virtualFileSystem, writeListener, statisticsCollector, Runnable::run, DirectorySnapshotter.NO_PARALLEL_HASHING, defaultExcludes);
+    }
+
+    public DefaultFileSystemAccess(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        Stat stat,
+        VirtualFileSystem virtualFileSystem,
+        WriteListener writeListener,
+        DirectorySnapshotterStatistics.Collector statisticsCollector,
+        Executor hashingExecutor,
+        int parallelHashingThreshold,
+        String... defaultExcludes
     ) {
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.writeListener = writeListener;
         this.statisticsCollector = statisticsCollector;
+        this.hashingExecutor = hashingExecutor;
+        this.parallelHashingThreshold = parallelHashingThreshold;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector);
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector, hashingExecutor, parallelHashingThreshold);
         this.hasher = hasher;
         this.virtualFileSystem = virtualFileSystem;
     }
@@ -232,7 +251,7 @@ public void updateDefaultExcludes(String... newDefaultExcludesArgs) {
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from {} to {}", defaultExcludes, newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector);
+            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector, hashingExecutor, parallelHashingThreshold);
             virtualFileSystem.invalidateAll();
         }
     }
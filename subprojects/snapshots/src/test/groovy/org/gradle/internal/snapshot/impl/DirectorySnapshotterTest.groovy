@@ -22,6 +22,7 @@ import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.fingerprint.impl.PatternSetSnapshottingFilter
+import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.internal.snapshot.DirectorySnapshot
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot
@@ -39,6 +40,8 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.function.Consumer
 
@@ -464,6 +467,96 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "parallel hashing creates the same snapshot as sequential hashing"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (0..<5).each { dir ->
+            (0..<10).each { file ->
+                rootDir.file("dir$dir/sub${file % 3}/file${file}.txt").text = "content $dir $file"
+            }
+        }
+        def executor = Executors.newFixedThreadPool(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, executor, threshold)
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, new AtomicBoolean(), {}) as DirectorySnapshot
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, null, actuallyFiltered, unfilteredSubSnapshotsCollector) as DirectorySnapshot
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        SnapshotVisitorUtil.getRelativePaths(parallelSnapshot) == SnapshotVisitorUtil.getRelativePaths(sequentialSnapshot)
+        !actuallyFiltered.get()
+        unfilteredSubsnapshots.empty
+
+        cleanup:
+        executor.shutdown()
+
+        where:
+        threshold << [0, 10, 1000]
+    }
+
+    def "parallel hashing reports the same unfiltered snapshots as sequential hashing"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.createFile("a.txt")
+        rootDir.createFile("a/b/c.txt")
+        rootDir.createFile("a/b/c.html")
+        rootDir.createFile("a/c/c.txt")
+        rootDir.createFile("subdir1/a/b/c.html")
+        def patterns = new PatternSet()
+        patterns.include("**/*.txt")
+        patterns.exclude("subdir1/**")
+        def executor = Executors.newFixedThreadPool(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, executor, 0)
+        List<FileSystemLocationSnapshot> sequentialUnfilteredSubsnapshots = []
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, directoryWalkerPredicate(patterns), new AtomicBoolean(), { sequentialUnfilteredSubsnapshots.add(it) })
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, directoryWalkerPredicate(patterns), actuallyFiltered, unfilteredSubSnapshotsCollector)
+
+        then:
+        actuallyFiltered.get()
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        unfilteredSubsnapshots*.absolutePath == sequentialUnfilteredSubsnapshots*.absolutePath
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "does not hash remaining files in parallel when hashing a file fails"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (0..<5).each { rootDir.file("file${it}.txt").text = "content $it" }
+        def failure = new RuntimeException("broken")
+        def hasher = Mock(FileHasher)
+        List<Runnable> queued = []
+        boolean first = true
+        Executor executor = { Runnable command ->
+            if (first) {
+                first = false
+                command.run()
+            } else {
+                queued.add(command)
+            }
+        }
+        def parallelSnapshotter = new DirectorySnapshotter(hasher, new StringInterner(), [], statisticsCollector, executor, 0)
+
+        when:
+        parallelSnapshotter.snapshot(rootDir.absolutePath, null, actuallyFiltered, unfilteredSubSnapshotsCollector)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+        1 * hasher.hash(_, _, _) >> { throw failure }
+        queued.size() == 4
+
+        when:
+        queued*.run()
+
+        then:
+        0 * hasher._
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes() as List)
 